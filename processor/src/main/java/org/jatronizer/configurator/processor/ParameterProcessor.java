@@ -0,0 +1,397 @@
+package org.jatronizer.configurator.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * Generates a {@code ConfigDescriptor} for each class with fields annotated with {@code Parameter}.
+ * The descriptor contains keys, tags, descriptions, converters and enum options of all parameters,
+ * ordered by key, and code to read and write the fields that are accessible from the package of the class.
+ * {@code InstanceConfigurator} uses it instead of reading fields and annotations with reflection.
+ *
+ * The processor is found automatically when it is on the compile classpath.
+ */
+@SupportedAnnotationTypes(ParameterProcessor.PARAMETER)
+public final class ParameterProcessor extends AbstractProcessor {
+
+	static final String PACKAGE = "org.jatronizer.configurator";
+	static final String PARAMETER = PACKAGE + ".Parameter";
+	static final String DESCRIPTION = PACKAGE + ".Description";
+	static final String NULL_CONVERTER = PACKAGE + ".Converters.NullConverter";
+	static final String DESCRIPTOR = PACKAGE + ".ConfigDescriptor";
+	static final String SUFFIX = "$$ConfigDescriptor";
+
+	private static final Map<TypeKind, String> BOXES = new EnumMap<TypeKind, String>(TypeKind.class);
+	static {
+		BOXES.put(TypeKind.BOOLEAN, "java.lang.Boolean");
+		BOXES.put(TypeKind.CHAR, "java.lang.Character");
+		BOXES.put(TypeKind.BYTE, "java.lang.Byte");
+		BOXES.put(TypeKind.SHORT, "java.lang.Short");
+		BOXES.put(TypeKind.INT, "java.lang.Integer");
+		BOXES.put(TypeKind.LONG, "java.lang.Long");
+		BOXES.put(TypeKind.FLOAT, "java.lang.Float");
+		BOXES.put(TypeKind.DOUBLE, "java.lang.Double");
+	}
+
+	/**
+	 * A field annotated with {@code Parameter}.
+	 */
+	private static final class Entry {
+		String field;
+		String key;
+		String tag;
+		String description;
+		boolean container;
+		String converter;
+		boolean readable;
+		boolean writable;
+		String castType;
+		// static fields are accessed through the type, not an instance
+		String owner;
+		List<String> options;
+		List<String> optionDescriptions;
+	}
+
+	// descriptors already written, a type can be reported in multiple rounds
+	private final Set<String> generated = new HashSet<String>();
+
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+		TypeElement parameter = processingEnv.getElementUtils().getTypeElement(PARAMETER);
+		if (parameter == null) {
+			return false;
+		}
+		Set<TypeElement> types = new LinkedHashSet<TypeElement>();
+		for (Element e : round.getElementsAnnotatedWith(parameter)) {
+			if (e.getKind() == ElementKind.FIELD && e.getEnclosingElement() instanceof TypeElement) {
+				types.add((TypeElement) e.getEnclosingElement());
+			}
+		}
+		for (TypeElement type : types) {
+			String name = processingEnv.getElementUtils().getBinaryName(type) + SUFFIX;
+			if (!generated.add(name)) {
+				continue;
+			}
+			List<Entry> entries = entries(type);
+			if (entries == null) {
+				continue;
+			}
+			try {
+				write(type, name, entries);
+			} catch (IOException e) {
+				messager().printMessage(Diagnostic.Kind.ERROR, "could not write " + name + ": " + e, type);
+			}
+		}
+		// other processors may handle Parameter, too
+		return false;
+	}
+
+	private Messager messager() {
+		return processingEnv.getMessager();
+	}
+
+	/**
+	 * Collects all parameters of {@code type} ordered by key, returns {@code null} on errors.
+	 */
+	private List<Entry> entries(TypeElement type) {
+		Elements elements = processingEnv.getElementUtils();
+		PackageElement pkg = elements.getPackageOf(type);
+		boolean typeAccessible = accessible(type, pkg);
+		List<Entry> entries = new ArrayList<Entry>();
+		boolean failed = false;
+		for (Element member : type.getEnclosedElements()) {
+			if (member.getKind() != ElementKind.FIELD) {
+				continue;
+			}
+			AnnotationMirror p = annotation(member, PARAMETER);
+			if (p == null) {
+				continue;
+			}
+			Set<Modifier> modifiers = member.getModifiers();
+			TypeMirror fieldType = member.asType();
+			Entry e = new Entry();
+			e.field = member.getSimpleName().toString();
+			e.key = (String) value(p, "key");
+			e.tag = (String) value(p, "tag");
+			e.container = (Boolean) value(p, "container");
+			if (modifiers.contains(Modifier.STATIC) && !e.container) {
+				// static containers are allowed, as they are at runtime
+				messager().printMessage(Diagnostic.Kind.ERROR, "a parameter must not be static", member);
+				failed = true;
+				continue;
+			}
+			if ("".equals(e.key) && !e.container) {
+				// the key of a container is only a prefix, it may be empty
+				e.key = e.field;
+			}
+			e.description = description(member);
+			TypeElement converter = (TypeElement) processingEnv.getTypeUtils().asElement(
+					(TypeMirror) value(p, "converter"));
+			if (converter != null && !NULL_CONVERTER.equals(converter.getQualifiedName().toString())) {
+				e.converter = elements.getBinaryName(converter).toString();
+			}
+			e.readable = typeAccessible && !modifiers.contains(Modifier.PRIVATE) && accessible(fieldType, pkg);
+			e.writable = e.readable && !modifiers.contains(Modifier.FINAL) && !generic(fieldType);
+			if (e.readable) {
+				e.castType = castType(fieldType);
+				e.owner = modifiers.contains(Modifier.STATIC) ? type.getQualifiedName().toString() : "c";
+			}
+			if (!e.container) {
+				options(e, fieldType);
+			}
+			entries.add(e);
+		}
+		if (failed) {
+			return null;
+		}
+		Collections.sort(entries, new Comparator<Entry>() {
+			public int compare(Entry o1, Entry o2) {
+				return o1.key.compareTo(o2.key);
+			}
+		});
+		return entries;
+	}
+
+	private void options(Entry e, TypeMirror type) {
+		Element element = processingEnv.getTypeUtils().asElement(type);
+		if (element == null || element.getKind() != ElementKind.ENUM) {
+			return;
+		}
+		SortedMap<String, String> options = new TreeMap<String, String>();
+		for (Element member : element.getEnclosedElements()) {
+			if (member.getKind() == ElementKind.ENUM_CONSTANT) {
+				options.put(member.getSimpleName().toString(), description(member));
+			}
+		}
+		e.options = new ArrayList<String>(options.keySet());
+		e.optionDescriptions = new ArrayList<String>(options.values());
+	}
+
+	private AnnotationMirror annotation(Element element, String name) {
+		for (AnnotationMirror m : element.getAnnotationMirrors()) {
+			TypeElement type = (TypeElement) m.getAnnotationType().asElement();
+			if (type.getQualifiedName().contentEquals(name)) {
+				return m;
+			}
+		}
+		return null;
+	}
+
+	private Object value(AnnotationMirror annotation, String name) {
+		Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+				processingEnv.getElementUtils().getElementValuesWithDefaults(annotation);
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> v : values.entrySet()) {
+			if (v.getKey().getSimpleName().contentEquals(name)) {
+				return v.getValue().getValue();
+			}
+		}
+		throw new IllegalStateException("annotation " + annotation + " has no value " + name);
+	}
+
+	private String description(Element element) {
+		AnnotationMirror d = annotation(element, DESCRIPTION);
+		if (d == null) {
+			return "";
+		}
+		return (String) value(d, "value");
+	}
+
+	/**
+	 * Reports whether code in {@code pkg} can use {@code type} in a cast.
+	 */
+	private boolean accessible(TypeMirror type, PackageElement pkg) {
+		Types types = processingEnv.getTypeUtils();
+		type = types.erasure(type);
+		if (type.getKind().isPrimitive()) {
+			return true;
+		}
+		switch (type.getKind()) {
+			case ARRAY:
+				return accessible(((ArrayType) type).getComponentType(), pkg);
+			case DECLARED:
+				return accessible((TypeElement) ((DeclaredType) type).asElement(), pkg);
+			default:
+				return false;
+		}
+	}
+
+	private boolean accessible(TypeElement type, PackageElement pkg) {
+		Elements elements = processingEnv.getElementUtils();
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			NestingKind nesting = ((TypeElement) e).getNestingKind();
+			if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS) {
+				return false;
+			}
+			Set<Modifier> modifiers = e.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE)) {
+				return false;
+			}
+			if (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(e).equals(pkg)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reports whether {@code type} is a type variable or an array of them, a cast to its erasure can not be
+	 * assigned to it.
+	 */
+	private static boolean generic(TypeMirror type) {
+		while (type.getKind() == TypeKind.ARRAY) {
+			type = ((ArrayType) type).getComponentType();
+		}
+		return type.getKind() == TypeKind.TYPEVAR;
+	}
+
+	private String castType(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return BOXES.get(type.getKind());
+		}
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	private void write(TypeElement type, String name, List<Entry> entries) throws IOException {
+		Elements elements = processingEnv.getElementUtils();
+		PackageElement pkg = elements.getPackageOf(type);
+		String className = pkg.isUnnamed() ? name : name.substring(pkg.getQualifiedName().length() + 1);
+		boolean readable = false;
+		boolean writable = false;
+		for (Entry e : entries) {
+			readable |= e.readable;
+			writable |= e.writable;
+		}
+		String typeName = type.getQualifiedName().toString();
+		PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(name, type).openWriter());
+		try {
+			out.println("// Generated by " + getClass().getName() + " from " + typeName + ", do not edit.");
+			if (!pkg.isUnnamed()) {
+				out.println("package " + pkg.getQualifiedName() + ";");
+			}
+			out.println();
+			out.println("public final class " + className + " extends " + DESCRIPTOR + " {");
+			out.println();
+			out.println("\tpublic static final " + className + " INSTANCE = new " + className + "();");
+			out.println();
+			out.println("\tprivate " + className + "() {");
+			out.println("\t\tsuper(");
+			out.print("\t\t\t\t" + literal(description(type)));
+			for (Entry e : entries) {
+				out.println(",");
+				out.print("\t\t\t\tnew Entry(" +
+						literal(e.field) + ", " +
+						literal(e.key) + ", " +
+						literal(e.tag) + ", " +
+						literal(e.description) + ", " +
+						e.container + ", " +
+						literal(e.converter) + ", " +
+						e.readable + ", " +
+						e.writable + ", " +
+						literals(e.options) + ", " +
+						literals(e.optionDescriptions) + ")");
+			}
+			out.println();
+			out.println("\t\t);");
+			out.println("\t}");
+			if (readable) {
+				out.println();
+				out.println("\tprotected Object get(Object configuration, int index) {");
+				out.println("\t\t" + typeName + " c = (" + typeName + ") configuration;");
+				out.println("\t\tswitch (index) {");
+				for (int i = 0; i < entries.size(); i++) {
+					Entry e = entries.get(i);
+					if (e.readable) {
+						out.println("\t\t\tcase " + i + ": return " + e.owner + "." + e.field + ";");
+					}
+				}
+				out.println("\t\t}");
+				out.println("\t\treturn super.get(configuration, index);");
+				out.println("\t}");
+			}
+			if (writable) {
+				out.println();
+				out.println("\t@SuppressWarnings(\"unchecked\")");
+				out.println("\tprotected void set(Object configuration, int index, Object value) {");
+				out.println("\t\t" + typeName + " c = (" + typeName + ") configuration;");
+				out.println("\t\tswitch (index) {");
+				for (int i = 0; i < entries.size(); i++) {
+					Entry e = entries.get(i);
+					if (e.writable) {
+						out.println("\t\t\tcase " + i + ": " + e.owner + "." + e.field + " = (" + e.castType + ") value; return;");
+					}
+				}
+				out.println("\t\t}");
+				out.println("\t\tsuper.set(configuration, index, value);");
+				out.println("\t}");
+			}
+			out.println("}");
+		} finally {
+			out.close();
+		}
+	}
+
+	private static String literals(List<String> values) {
+		if (values == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder("new String[]{");
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(literal(values.get(i)));
+		}
+		return sb.append('}').toString();
+	}
+
+	private static String literal(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					sb.append("\\\"");
+					break;
+				case '\\':
+					sb.append("\\\\");
+					break;
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				case '\t':
+					sb.append("\\t");
+					break;
+				default:
+					if (c < ' ' || c > '~') {
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -0,0 +1,124 @@
+package org.jatronizer.configurator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits measurements as Java Flight Recorder events.
+ * It is loaded by {@link ConfigManager#flightRecorderMetrics} on Java 11 and later.
+ * All events are disabled by default, a recording has to enable them by name, e.g.
+ * {@code org.jatronizer.configurator.Change#enabled=true}. Events are committed when an operation ends.
+ * While an event is disabled, operations do not read the clock or render values for it.
+ */
+final class FlightRecorderMetrics implements ConfigMetrics, Metrics.Switch {
+
+	@Name("org.jatronizer.configurator.Operation")
+	@Label("Configuration Operation")
+	@Category("Configurator")
+	@Enabled(false)
+	@StackTrace(false)
+	static final class OperationEvent extends Event {
+		@Label("Operation")
+		String operation;
+
+		@Label("Values")
+		@Description("Number of values involved")
+		int values;
+
+		@Label("Failures")
+		@Description("Number of values or arguments that could not be set")
+		int failures;
+
+		@Label("Elapsed")
+		@Timespan(Timespan.NANOSECONDS)
+		long elapsed;
+	}
+
+	@Name("org.jatronizer.configurator.Change")
+	@Label("Configuration Change")
+	@Category("Configurator")
+	@Enabled(false)
+	@StackTrace(false)
+	static final class ChangeEvent extends Event {
+		@Label("Key")
+		String key;
+
+		@Label("Previous Length")
+		@Description("Length of the previous value, -1 for null")
+		int previousLength;
+
+		@Label("Length")
+		@Description("Length of the new value, -1 for null")
+		int length;
+
+		@Label("Converter")
+		Class<?> converter;
+	}
+
+	@Name("org.jatronizer.configurator.ConversionFailure")
+	@Label("Configuration Conversion Failure")
+	@Category("Configurator")
+	@Enabled(false)
+	static final class ConversionFailureEvent extends Event {
+		@Label("Key")
+		String key;
+
+		@Label("Converter")
+		Class<?> converter;
+	}
+
+	static final class FlightRecorderFactory implements Metrics.Factory {
+		public ConfigMetrics metrics() {
+			return new FlightRecorderMetrics();
+		}
+	}
+
+	private static final EventType OPERATION = EventType.getEventType(OperationEvent.class);
+	private static final EventType CHANGE = EventType.getEventType(ChangeEvent.class);
+
+	public boolean recordsOperations() {
+		return OPERATION.isEnabled();
+	}
+
+	public boolean recordsChanges() {
+		return CHANGE.isEnabled();
+	}
+
+	public void record(Operation operation, int values, int failures, long nanos) {
+		OperationEvent event = new OperationEvent();
+		if (event.isEnabled()) {
+			event.operation = operation.name();
+			event.values = values;
+			event.failures = failures;
+			event.elapsed = nanos;
+			event.commit();
+		}
+	}
+
+	public void changed(String key, int previousLength, int length, Class<?> converter) {
+		ChangeEvent event = new ChangeEvent();
+		if (event.isEnabled()) {
+			event.key = key;
+			event.previousLength = previousLength;
+			event.length = length;
+			event.converter = converter;
+			event.commit();
+		}
+	}
+
+	public void conversionFailed(String key, Class<?> converter) {
+		ConversionFailureEvent event = new ConversionFailureEvent();
+		if (event.isEnabled()) {
+			event.key = key;
+			event.converter = converter;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package org.jatronizer.configurator;
+
+/**
+ * Stores cached values in a {@link ClassValue}.
+ * It is loaded by {@link ClassCache#create} on Java 7 and later.
+ * @param <V> Type of the cached values.
+ */
+final class ClassValueCache<V> extends ClassCache<V> {
+
+	static final class ClassValueFactory implements Factory {
+		public <V> ClassCache<V> cache(Loader<V> loader) {
+			return new ClassValueCache<V>(loader);
+		}
+	}
+
+	private final ClassValue<V> values;
+
+	private ClassValueCache(final Loader<V> loader) {
+		this.values = new ClassValue<V>() {
+			protected V computeValue(Class<?> type) {
+				return loader.load(type);
+			}
+		};
+	}
+
+	V get(Class<?> type) {
+		return values.get(type);
+	}
+}
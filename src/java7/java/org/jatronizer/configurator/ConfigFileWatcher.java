@@ -0,0 +1,231 @@
+package org.jatronizer.configurator;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Watches properties files and sets their values on configurators when the files change.
+ * All files are served by a single daemon thread with one {@link WatchService}, however many configurators
+ * are registered. Events for a file are debounced: it is read once no further event arrived for the debounce
+ * interval. A file is only parsed if its size, modification time or checksum changed, and only entries with
+ * values different from the current ones are passed to {@link Configurator#set(Map)}.
+ * Entries with unknown keys or values that can not be set are ignored.
+ * Requires Java 7 or later.
+ */
+public final class ConfigFileWatcher implements Closeable {
+
+	// a watched file and the configurators it is applied to
+	private static final class Watched {
+		final Path file;
+		final CopyOnWriteArrayList<Configurator> configurators = new CopyOnWriteArrayList<Configurator>();
+		// state of the last read content, guarded by this
+		long size = -1;
+		long modified = -1;
+		long checksum = -1;
+		Properties content;
+
+		Watched(Path file) {
+			this.file = file;
+		}
+	}
+
+	private final long debounceNanos;
+	private final WatchService service;
+	private final ConcurrentHashMap<Path, Watched> files = new ConcurrentHashMap<Path, Watched>();
+	private final ConcurrentHashMap<Path, WatchKey> dirs = new ConcurrentHashMap<Path, WatchKey>();
+
+	/**
+	 * Creates a watcher and starts its thread.
+	 * @param debounce The time without further changes before a changed file is read.
+	 * @param unit The unit of {@code debounce}.
+	 * @throws IOException if the file system can not be watched.
+	 */
+	public ConfigFileWatcher(long debounce, TimeUnit unit) throws IOException {
+		this.debounceNanos = unit.toNanos(debounce);
+		this.service = FileSystems.getDefault().newWatchService();
+		Thread thread = new Thread("configurator-file-watcher") {
+			public void run() {
+				watch();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Sets the values in {@code file} on {@code configurator} now and whenever the file changes.
+	 * A missing file is applied once it is created.
+	 * @param file A properties file, see {@link Properties#load(java.io.InputStream)}.
+	 * @param configurator The configurator.
+	 * @throws IOException if the directory of {@code file} can not be watched.
+	 */
+	public void watch(Path file, Configurator configurator) throws IOException {
+		file = file.toAbsolutePath().normalize();
+		Path dir = file.getParent();
+		if (!dirs.containsKey(dir)) {
+			WatchKey key = dir.register(service,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			dirs.putIfAbsent(dir, key);
+		}
+		Watched w = files.get(file);
+		if (w == null) {
+			Watched created = new Watched(file);
+			w = files.putIfAbsent(file, created);
+			if (w == null) {
+				w = created;
+			}
+		}
+		synchronized (w) {
+			w.configurators.add(configurator);
+			reload(w);
+			if (w.content != null) {
+				apply(w.content, configurator);
+			}
+		}
+	}
+
+	/**
+	 * Stops applying {@code file} to {@code configurator}.
+	 */
+	public void unwatch(Path file, Configurator configurator) {
+		Watched w = files.get(file.toAbsolutePath().normalize());
+		if (w != null) {
+			w.configurators.remove(configurator);
+		}
+	}
+
+	/**
+	 * Stops watching all files and ends the thread.
+	 */
+	public void close() throws IOException {
+		service.close();
+	}
+
+	private void watch() {
+		// files with pending changes by the time they are read
+		HashMap<Path, Long> due = new HashMap<Path, Long>();
+		try {
+			for (; ; ) {
+				WatchKey key;
+				if (due.isEmpty()) {
+					key = service.take();
+				} else {
+					long wait = Collections.min(due.values()) - System.nanoTime();
+					key = wait > 0 ? service.poll(wait, TimeUnit.NANOSECONDS) : service.poll();
+				}
+				if (key != null) {
+					collect(key, due, System.nanoTime() + debounceNanos);
+				}
+				long now = System.nanoTime();
+				for (Iterator<Map.Entry<Path, Long>> it = due.entrySet().iterator(); it.hasNext(); ) {
+					Map.Entry<Path, Long> e = it.next();
+					if (e.getValue() - now <= 0) {
+						it.remove();
+						Watched w = files.get(e.getKey());
+						if (w != null) {
+							update(w);
+						}
+					}
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// closed
+		} catch (InterruptedException e) {
+			// stop watching
+		}
+	}
+
+	// records the events of key, a new event for a file delays reading it
+	private void collect(WatchKey key, HashMap<Path, Long> due, long time) {
+		Path dir = (Path) key.watchable();
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				for (Path file : files.keySet()) {
+					if (file.getParent().equals(dir)) {
+						due.put(file, time);
+					}
+				}
+				continue;
+			}
+			Path file = dir.resolve((Path) event.context());
+			if (files.containsKey(file)) {
+				due.put(file, time);
+			}
+		}
+		key.reset();
+	}
+
+	// reads the file and applies it if its content changed
+	private void update(Watched w) {
+		synchronized (w) {
+			Properties previous = w.content;
+			reload(w);
+			if (w.content == previous) {
+				return;
+			}
+			for (Configurator c : w.configurators) {
+				try {
+					apply(w.content, c);
+				} catch (RuntimeException e) {
+					// keep serving the other configurators and files
+				}
+			}
+		}
+	}
+
+	// replaces w.content if the file changed, must be called while w is locked
+	private static void reload(Watched w) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(w.file, BasicFileAttributes.class);
+			long size = attributes.size();
+			long modified = attributes.lastModifiedTime().toMillis();
+			if (w.content != null && size == w.size && modified == w.modified) {
+				return;
+			}
+			byte[] data = Files.readAllBytes(w.file);
+			CRC32 crc = new CRC32();
+			crc.update(data);
+			if (w.content == null || crc.getValue() != w.checksum) {
+				Properties content = new Properties();
+				try {
+					content.load(new ByteArrayInputStream(data));
+				} catch (RuntimeException e) {
+					// malformed, e.g. an invalid unicode escape; keep the previous content and read it again
+					// with the next event
+					return;
+				}
+				w.checksum = crc.getValue();
+				w.content = content;
+			}
+			// the attributes are checked first next time, even if the checksum did not change
+			w.size = size;
+			w.modified = modified;
+		} catch (IOException e) {
+			// missing or being written; read with the next event
+		}
+	}
+
+	// sets the entries of content with values different from the current values of configurator
+	private static void apply(Properties content, Configurator configurator) {
+		ConfigSnapshot current = ConfigManager.snapshot(configurator);
+		HashMap<String, String> changed = new HashMap<String, String>();
+		for (String key : content.stringPropertyNames()) {
+			String value = content.getProperty(key);
+			if (configurator.hasKey(key) && !value.equals(current.value(key))) {
+				changed.put(key, value);
+			}
+		}
+		if (!changed.isEmpty()) {
+			configurator.set(changed);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares setting batches of values one by one with applying them completely or not at all.
+ * The batches are taken from a configuration with 10000 parameters.
+ * {@code read} reads the values of the batch keys one by one, batches must not slow down these reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BatchBenchmark {
+
+	@Param({"10", "1000", "10000"})
+	public int batchSize;
+
+	@Param({"single", "managed"})
+	public String configurators;
+
+	private Configurator configurator;
+	private Map<String, String> batch;
+	private String[] batchKeys;
+
+	@Setup
+	public void setup() {
+		configurator = "single".equals(configurators)
+				? ConfigManager.configure(Fixtures.configuration(10000))
+				: ConfigManager.manage(Fixtures.leafConfigurators(10000));
+		String[] keys = configurator.keys();
+		Map<String, String> values = Fixtures.values(configurator);
+		batch = new HashMap<String, String>(batchSize * 2);
+		// spread the batch over all parameters
+		int step = keys.length / batchSize;
+		for (int i = 0; i < batchSize; i++) {
+			batch.put(keys[i * step], values.get(keys[i * step]));
+		}
+		batchKeys = batch.keySet().toArray(new String[batch.size()]);
+	}
+
+	@Benchmark
+	public Map<String, String> set() {
+		return configurator.set(batch);
+	}
+
+	@Benchmark
+	public Map<String, String> apply() {
+		return ConfigManager.apply(configurator, batch);
+	}
+
+	@Benchmark
+	public int read() {
+		int length = 0;
+		for (String key : batchKeys) {
+			length += configurator.value(key).length();
+		}
+		return length;
+	}
+}
@@ -0,0 +1,69 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading values while another thread applies batches.
+ * {@code locked} reads under the read lock of the configurator,
+ * {@code concurrent} reads the published snapshot of a configurator in concurrent mode.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConcurrentReadBenchmark {
+
+	@Param({"locked", "concurrent"})
+	public String mode;
+
+	private Configurator configurator;
+	private String[] keys;
+	private Map<String, String> batch;
+	private int next;
+
+	@Setup
+	public void setup() {
+		configurator = ConfigManager.configure(Fixtures.configuration(100));
+		if ("concurrent".equals(mode)) {
+			configurator = ConfigManager.concurrent(configurator);
+		}
+		keys = configurator.keys();
+		Map<String, String> values = Fixtures.values(configurator);
+		batch = new HashMap<String, String>();
+		for (int i = 0; i < keys.length; i += 10) {
+			batch.put(keys[i], values.get(keys[i]));
+		}
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(3)
+	public String read() {
+		// racy, but any key will do
+		int i = next;
+		next = (i + 1) % keys.length;
+		return configurator.value(keys[i]);
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public Map<String, String> write() {
+		return configurator.set(batch);
+	}
+
+	@Benchmark
+	@Group("readOnly")
+	@GroupThreads(4)
+	public String readOnly() {
+		int i = next;
+		next = (i + 1) % keys.length;
+		return configurator.value(keys[i]);
+	}
+}
@@ -0,0 +1,121 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating configurators and filling them from the command line and the environment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfigManagerBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	private Object configuration;
+	private Configurator[] leaves;
+	private Configurator configurator;
+	private String[] args;
+	private String firstKey;
+	// the arguments in the form -key value
+	private String[] separatedArgs;
+	// an argument file with separatedArgs
+	private String[] argFile;
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		configuration = Fixtures.configuration(size);
+		leaves = Fixtures.leafConfigurators(size);
+		configurator = ConfigManager.configure(configuration);
+		args = Fixtures.args(configurator);
+		firstKey = configurator.keys()[0];
+		separatedArgs = new String[2 * args.length];
+		for (int i = 0; i < args.length; i++) {
+			int sep = args[i].indexOf('=');
+			separatedArgs[2 * i] = args[i].substring(0, sep);
+			separatedArgs[2 * i + 1] = args[i].substring(sep + 1);
+		}
+		file = File.createTempFile("configurator", ".args");
+		file.deleteOnExit();
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			for (int i = 0; i < separatedArgs.length; i += 2) {
+				out.write(separatedArgs[i] + " '" + separatedArgs[i + 1] + "'\n");
+			}
+		} finally {
+			out.close();
+		}
+		argFile = new String[]{"@" + file.getPath()};
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public Configurator configure() {
+		return ConfigManager.configure(configuration);
+	}
+
+	@Benchmark
+	public Configurator configureLazily() {
+		return ConfigManager.configureLazily(configuration, "", "", "", "");
+	}
+
+	// binds the parameters of one leaf, the others stay at their defaults
+	@Benchmark
+	public String configureLazilyAndRead() {
+		Configurator c = ConfigManager.configureLazily(configuration, "", "", "", "");
+		return c.value(firstKey);
+	}
+
+	@Benchmark
+	public Configurator rebind() {
+		return ConfigManager.rebind(configurator, configuration);
+	}
+
+	@Benchmark
+	public Configurator manage() {
+		return ConfigManager.manage(leaves);
+	}
+
+	@Benchmark
+	public String[] setFromArgs() {
+		return ConfigManager.setFromArgs(configurator, args);
+	}
+
+	@Benchmark
+	public String[] setFromCommandLine() throws IOException {
+		return ConfigManager.setFromCommandLine(configurator, separatedArgs);
+	}
+
+	@Benchmark
+	public String[] setFromArgFile() throws IOException {
+		return ConfigManager.setFromCommandLine(configurator, argFile);
+	}
+
+	@Benchmark
+	public Configurator setFromEnv() {
+		ConfigManager.setFromEnv(configurator, "bench/");
+		return configurator;
+	}
+
+	@Benchmark
+	public Configurator printHelpFor() {
+		ConfigManager.printHelpFor(configurator, "bench/", Fixtures.NULL_OUTPUT);
+		return configurator;
+	}
+}
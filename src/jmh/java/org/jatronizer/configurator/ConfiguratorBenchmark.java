@@ -0,0 +1,176 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and writing values of an existing configurator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConfiguratorBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	private Configurator configurator;
+	// checks the cached values on each read
+	private Configurator verifying;
+	private Map<String, String> values;
+	// the same number of parameters in size / 10 configurators
+	private Configurator managed;
+	private Map<String, String> managedValues;
+	private String[] keys;
+	private String[] keyValues;
+	private ConfigParameter[] parameters;
+	// an int parameter, -prof gc shows whether values are boxed
+	private ConfigParameter port;
+	private ConfigParameter mode;
+	private int cursor;
+	// the first container of the configuration, a tenth of all keys
+	private String prefix;
+
+	@Setup
+	public void setup() {
+		configurator = ConfigManager.configure(Fixtures.configuration(size));
+		values = Fixtures.values(configurator);
+		verifying = ConfigManager.verifying(configurator);
+		managed = ConfigManager.manage(Fixtures.leafConfigurators(size));
+		managedValues = Fixtures.values(managed);
+		keys = configurator.keys();
+		prefix = keys[0].substring(0, keys[0].indexOf('/') + 1);
+		keyValues = new String[keys.length];
+		parameters = new ConfigParameter[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			keyValues[i] = values.get(keys[i]);
+			parameters[i] = configurator.parameter(keys[i]);
+			if (keys[i].endsWith("port")) {
+				port = parameters[i];
+			} else if (keys[i].endsWith("mode")) {
+				mode = parameters[i];
+			}
+		}
+	}
+
+	private static final class ConsumingVisitor implements ConfigVisitor {
+		private final Blackhole bh;
+
+		ConsumingVisitor(Blackhole bh) {
+			this.bh = bh;
+		}
+
+		public void visitConfiguration(String name, String tags, String description, Configurator configurator) {
+			bh.consume(name);
+		}
+
+		public void visitParameter(ConfigParameter parameter, String currentValue) {
+			bh.consume(currentValue);
+		}
+	}
+
+	// cycles through all keys so lookups are not always served from the same cache lines
+	private int next() {
+		int i = cursor;
+		cursor = i + 1 == keys.length ? 0 : i + 1;
+		return i;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Map<String, String> setMap() {
+		return configurator.set(values);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Map<String, String> setManagedMap() {
+		return managed.set(managedValues);
+	}
+
+	@Benchmark
+	public String value() {
+		return configurator.value(keys[next()]);
+	}
+
+	@Benchmark
+	public String verifiedValue() {
+		return verifying.value(keys[next()]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void walk(Blackhole bh) {
+		configurator.walk(new ConsumingVisitor(bh));
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public String[] subtreeKeys() {
+		return ConfigManager.subtree(configurator, prefix).keys();
+	}
+
+	// subtreeKeys without an index, as a caller had to do it before
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<String> scanKeys() {
+		ArrayList<String> result = new ArrayList<String>();
+		for (String key : configurator.keys()) {
+			if (key.startsWith(prefix)) {
+				result.add(key);
+			}
+		}
+		return result;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void subtreeWalk(Blackhole bh) {
+		ConfigManager.subtree(configurator, prefix).walk(new ConsumingVisitor(bh));
+	}
+
+	@Benchmark
+	public String intGet() {
+		return port.get();
+	}
+
+	@Benchmark
+	public ConfigParameter intSet() {
+		port.set("8081");
+		return port;
+	}
+
+	@Benchmark
+	public String enumGet() {
+		return mode.get();
+	}
+
+	@Benchmark
+	public ConfigParameter enumSet() {
+		mode.set("offline");
+		return mode;
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public String parameterGet() {
+		return parameters[next()].get();
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public ConfigParameter parameterSet() {
+		int i = next();
+		ConfigParameter p = parameters[i];
+		p.set(keyValues[i]);
+		return p;
+	}
+}
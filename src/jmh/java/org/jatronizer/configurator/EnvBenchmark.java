@@ -0,0 +1,67 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures setting values from synthetic environments of different sizes.
+ * Ten variables match keys of the configuration, all others are unrelated.
+ * {@code probeKeys} looks up the variable name of each key as {@link ConfigManager#setFromEnv} did before it
+ * scanned the smaller of environment and keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EnvBenchmark {
+
+	private static final String PREFIX = "bench/";
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	@Param({"100", "10000"})
+	public int variables;
+
+	private Configurator configurator;
+	private Map<String, String> env;
+
+	@Setup
+	public void setup() {
+		configurator = ConfigManager.configure(Fixtures.configuration(size));
+		String[] keys = configurator.keys();
+		String[] names = KeyNames.of(configurator).env(PREFIX);
+		env = new HashMap<String, String>(2 * variables);
+		for (int i = 0; i < 10; i++) {
+			int k = i * (keys.length / 10);
+			env.put(names[k], configurator.value(keys[k]));
+		}
+		for (int i = env.size(); i < variables; i++) {
+			env.put("UNRELATED_VARIABLE_" + i, "value " + i);
+		}
+	}
+
+	@Benchmark
+	public Map<String, String> setFromEnv() {
+		return ConfigManager.setFromEnv(configurator, PREFIX, env);
+	}
+
+	@Benchmark
+	public Map<String, String> probeKeys() {
+		KeyNames names = KeyNames.of(configurator);
+		String[] envNames = names.env(PREFIX);
+		HashMap<String, String> config = new HashMap<String, String>(env.size(), 1.0f);
+		for (int i = 0; i < envNames.length; i++) {
+			String value = env.get(envNames[i]);
+			if (value != null) {
+				config.put(names.key(i), value);
+			}
+		}
+		return configurator.set(config);
+	}
+}
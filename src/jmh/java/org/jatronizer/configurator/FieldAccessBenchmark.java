@@ -0,0 +1,105 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the field access engines.
+ * {@code field} is the reflective path used before {@link FieldAccessor}, it checks accessibility on every call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FieldAccessBenchmark {
+
+	public static class Target {
+		private int number = 100000;
+		private String text = "text";
+	}
+
+	private static final class UncheckedAccessor extends FieldAccessor {
+		UncheckedAccessor(Field field) {
+			super(field);
+		}
+
+		Object get(Object target) {
+			try {
+				if (!field.isAccessible()) {
+					field.setAccessible(true);
+				}
+				return field.get(target);
+			} catch (Exception e) {
+				throw getFailed(e);
+			}
+		}
+
+		void set(Object target, Object value) {
+			try {
+				field.set(target, value);
+			} catch (Exception e) {
+				throw setFailed(e);
+			}
+		}
+	}
+
+	@Param({"field", "reflection"})
+	public String engine;
+
+	private final Target target = new Target();
+	private FieldAccessor number;
+	private FieldAccessor text;
+	private int value = 100000;
+	private final String[] texts = {"a", "b"};
+
+	private static FieldAccessor accessor(String engine, String name) throws Exception {
+		Field field = Target.class.getDeclaredField(name);
+		if ("field".equals(engine)) {
+			return new UncheckedAccessor(field);
+		}
+		return new ReflectionAccessor(field);
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		number = accessor(engine, "number");
+		text = accessor(engine, "text");
+	}
+
+	@Benchmark
+	public Object getBoxed() {
+		return number.get(target);
+	}
+
+	@Benchmark
+	public int getInt() {
+		return number.getInt(target);
+	}
+
+	@Benchmark
+	public Target setBoxed() {
+		number.set(target, ++value);
+		return target;
+	}
+
+	@Benchmark
+	public Target setInt() {
+		number.setInt(target, ++value);
+		return target;
+	}
+
+	@Benchmark
+	public Object getString() {
+		return text.get(target);
+	}
+
+	@Benchmark
+	public Target setString() {
+		text.set(target, texts[++value & 1]);
+		return target;
+	}
+}
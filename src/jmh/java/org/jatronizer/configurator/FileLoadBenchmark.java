@@ -0,0 +1,76 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading a file with {@link Properties#load} and {@link Configurator#set(Properties)} with
+ * {@link ConfigManager#setFromFile}. One in ten lines has a key of the configuration with 1000 parameters,
+ * all others have unknown keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileLoadBenchmark {
+
+	@Param({"1", "100", "1000"})
+	public int megabytes;
+
+	private Configurator configurator;
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		configurator = ConfigManager.configure(Fixtures.configuration(1000));
+		String[] keys = configurator.keys();
+		Map<String, String> values = Fixtures.values(configurator);
+		file = File.createTempFile("configurator", ".conf");
+		file.deleteOnExit();
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1"));
+		try {
+			long size = 0;
+			for (int line = 0; size < megabytes * (1L << 20); line++) {
+				String entry;
+				if (line % 10 == 0) {
+					String key = keys[(line / 10) % keys.length];
+					entry = key + "=" + values.get(key) + "\n";
+				} else {
+					entry = "unknown.section" + (line % 97) + ".key" + line + "=some value for line " + line + "\n";
+				}
+				out.write(entry);
+				size += entry.length();
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public Map<String, String> properties() throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		return configurator.set(properties);
+	}
+
+	@Benchmark
+	public Map<String, String> mapped() throws IOException {
+		return ConfigManager.setFromFile(configurator, file);
+	}
+}
@@ -0,0 +1,178 @@
+package org.jatronizer.configurator;
+
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.jatronizer.configurator.ConfigSupport.KeyFormat.arg;
+
+/**
+ * Configurations of different sizes used by the benchmarks.
+ * A {@link Leaf} has 10 parameters, each {@code Fan} level contains 10 instances of the level below it,
+ * so {@link Fan2} has 1000 and {@link Fan4} has 100000 parameters.
+ */
+public final class Fixtures {
+
+	// Static class without instances, constructor is hidden
+	private Fixtures() {}
+
+	public enum Mode {
+		@Description("serve requests")
+		online,
+		@Description("reject requests")
+		offline,
+		@Description("serve requests with reduced functionality")
+		degraded
+	}
+
+	@Description("10 parameters of all supported kinds")
+	public static class Leaf {
+		@Parameter
+		@Description("host name or address")
+		private String host = "localhost";
+
+		@Parameter
+		@Description("port number")
+		private int port = 8080;
+
+		@Parameter
+		private long timeoutMillis = 30000L;
+
+		@Parameter
+		private boolean enabled = true;
+
+		@Parameter
+		private double ratio = 0.75;
+
+		@Parameter
+		@Description("operation mode")
+		private Mode mode = Mode.online;
+
+		@Parameter(key = "user/name")
+		private String user = "root";
+
+		@Parameter
+		private short retries = 3;
+
+		@Parameter
+		private float load = 0.5f;
+
+		@Parameter
+		private char separator = ',';
+	}
+
+	public static class Fan1 {
+		@Parameter(key = "0/", container = true) private final Leaf c0 = new Leaf();
+		@Parameter(key = "1/", container = true) private final Leaf c1 = new Leaf();
+		@Parameter(key = "2/", container = true) private final Leaf c2 = new Leaf();
+		@Parameter(key = "3/", container = true) private final Leaf c3 = new Leaf();
+		@Parameter(key = "4/", container = true) private final Leaf c4 = new Leaf();
+		@Parameter(key = "5/", container = true) private final Leaf c5 = new Leaf();
+		@Parameter(key = "6/", container = true) private final Leaf c6 = new Leaf();
+		@Parameter(key = "7/", container = true) private final Leaf c7 = new Leaf();
+		@Parameter(key = "8/", container = true) private final Leaf c8 = new Leaf();
+		@Parameter(key = "9/", container = true) private final Leaf c9 = new Leaf();
+	}
+
+	public static class Fan2 {
+		@Parameter(key = "0/", container = true) private final Fan1 c0 = new Fan1();
+		@Parameter(key = "1/", container = true) private final Fan1 c1 = new Fan1();
+		@Parameter(key = "2/", container = true) private final Fan1 c2 = new Fan1();
+		@Parameter(key = "3/", container = true) private final Fan1 c3 = new Fan1();
+		@Parameter(key = "4/", container = true) private final Fan1 c4 = new Fan1();
+		@Parameter(key = "5/", container = true) private final Fan1 c5 = new Fan1();
+		@Parameter(key = "6/", container = true) private final Fan1 c6 = new Fan1();
+		@Parameter(key = "7/", container = true) private final Fan1 c7 = new Fan1();
+		@Parameter(key = "8/", container = true) private final Fan1 c8 = new Fan1();
+		@Parameter(key = "9/", container = true) private final Fan1 c9 = new Fan1();
+	}
+
+	public static class Fan3 {
+		@Parameter(key = "0/", container = true) private final Fan2 c0 = new Fan2();
+		@Parameter(key = "1/", container = true) private final Fan2 c1 = new Fan2();
+		@Parameter(key = "2/", container = true) private final Fan2 c2 = new Fan2();
+		@Parameter(key = "3/", container = true) private final Fan2 c3 = new Fan2();
+		@Parameter(key = "4/", container = true) private final Fan2 c4 = new Fan2();
+		@Parameter(key = "5/", container = true) private final Fan2 c5 = new Fan2();
+		@Parameter(key = "6/", container = true) private final Fan2 c6 = new Fan2();
+		@Parameter(key = "7/", container = true) private final Fan2 c7 = new Fan2();
+		@Parameter(key = "8/", container = true) private final Fan2 c8 = new Fan2();
+		@Parameter(key = "9/", container = true) private final Fan2 c9 = new Fan2();
+	}
+
+	public static class Fan4 {
+		@Parameter(key = "0/", container = true) private final Fan3 c0 = new Fan3();
+		@Parameter(key = "1/", container = true) private final Fan3 c1 = new Fan3();
+		@Parameter(key = "2/", container = true) private final Fan3 c2 = new Fan3();
+		@Parameter(key = "3/", container = true) private final Fan3 c3 = new Fan3();
+		@Parameter(key = "4/", container = true) private final Fan3 c4 = new Fan3();
+		@Parameter(key = "5/", container = true) private final Fan3 c5 = new Fan3();
+		@Parameter(key = "6/", container = true) private final Fan3 c6 = new Fan3();
+		@Parameter(key = "7/", container = true) private final Fan3 c7 = new Fan3();
+		@Parameter(key = "8/", container = true) private final Fan3 c8 = new Fan3();
+		@Parameter(key = "9/", container = true) private final Fan3 c9 = new Fan3();
+	}
+
+	/**
+	 * Creates a single configuration with {@code size} parameters.
+	 * @param size 10, 100, 1000, 10000 or 100000.
+	 */
+	public static Object configuration(int size) {
+		switch (size) {
+			case 10:
+				return new Leaf();
+			case 100:
+				return new Fan1();
+			case 1000:
+				return new Fan2();
+			case 10000:
+				return new Fan3();
+			case 100000:
+				return new Fan4();
+		}
+		throw new IllegalArgumentException("no configuration with " + size + " parameters");
+	}
+
+	/**
+	 * Creates {@code size / 10} configurators for {@link Leaf} instances with distinct key prefixes.
+	 */
+	public static Configurator[] leafConfigurators(int size) {
+		Configurator[] configurators = new Configurator[size / 10];
+		for (int i = 0; i < configurators.length; i++) {
+			configurators[i] = ConfigManager.configure(new Leaf(), "leaf" + i, "leaf" + i + "/", "", "");
+		}
+		return configurators;
+	}
+
+	/**
+	 * Retrieves the current values of all parameters of {@code configurator}.
+	 */
+	public static Map<String, String> values(Configurator configurator) {
+		String[] keys = configurator.keys();
+		HashMap<String, String> values = new HashMap<String, String>(keys.length * 2);
+		for (String key : keys) {
+			values.put(key, configurator.value(key));
+		}
+		return values;
+	}
+
+	/**
+	 * Creates command line arguments in the form {@code -key=value} for all parameters of {@code configurator}.
+	 */
+	public static String[] args(Configurator configurator) {
+		String[] keys = configurator.keys();
+		String[] args = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			args[i] = arg.from(ConfigManager.ARG_PREFIX + keys[i]) + "=" + configurator.value(keys[i]);
+		}
+		return args;
+	}
+
+	/**
+	 * Discards everything written to it.
+	 */
+	public static final OutputStream NULL_OUTPUT = new OutputStream() {
+		public void write(int b) {}
+		public void write(byte[] b, int off, int len) {}
+	};
+}
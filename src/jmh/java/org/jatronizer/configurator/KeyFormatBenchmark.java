@@ -0,0 +1,69 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.jatronizer.configurator.ConfigSupport.KeyFormat.arg;
+import static org.jatronizer.configurator.ConfigSupport.KeyFormat.env;
+
+/**
+ * Measures formatting keys as argument keys and environment variable names.
+ * {@code regex} is the implementation used before {@link ConfigSupport.KeyFormat} scanned the keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KeyFormatBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	private String[] keys;
+	private Configurator configurator;
+	private String[] args;
+
+	@Setup
+	public void setup() {
+		configurator = ConfigManager.configure(Fixtures.configuration(size));
+		keys = configurator.keys();
+		args = Fixtures.args(configurator);
+	}
+
+	private static String regex(String key, String separator) {
+		return key
+				.replaceAll("([A-Z]+)", separator + "$1")
+				.replaceAll("[^A-Za-z0-9]+", separator);
+	}
+
+	@Benchmark
+	public void regex(Blackhole bh) {
+		for (String key : keys) {
+			bh.consume(regex(ConfigManager.ARG_PREFIX + key, "-").replaceAll("--+", "-").toLowerCase());
+			bh.consume(regex(key, "_").replaceAll("__+", "-").toUpperCase());
+		}
+	}
+
+	@Benchmark
+	public void scanner(Blackhole bh) {
+		for (String key : keys) {
+			bh.consume(arg.from(ConfigManager.ARG_PREFIX + key));
+			bh.consume(env.from(key));
+		}
+	}
+
+	@Benchmark
+	public int getArgs() {
+		return ConfigManager.getArgs(new HashMap<String, String>(), null, keys, args);
+	}
+
+	@Benchmark
+	public int cachedArgs() {
+		return KeyNames.of(configurator).parseArgs(new HashMap<String, String>(), null, args);
+	}
+}
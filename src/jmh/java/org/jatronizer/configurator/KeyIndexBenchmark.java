@@ -0,0 +1,55 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares key lookups with {@link KeyIndex} and with a binary search over the sorted keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KeyIndexBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	public int size;
+
+	private String[] keys;
+	// equal to keys but not the same instances, like keys read from a request
+	private String[] lookups;
+	private KeyIndex index;
+	private int cursor;
+
+	@Setup
+	public void setup() {
+		keys = ConfigManager.configure(Fixtures.configuration(size)).keys();
+		lookups = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			lookups[i] = new String(keys[i]);
+			lookups[i].hashCode();
+		}
+		index = new KeyIndex(keys);
+	}
+
+	// cycles through all keys so lookups are not always served from the same cache lines
+	private String next() {
+		int i = cursor;
+		cursor = i + 1 == lookups.length ? 0 : i + 1;
+		return lookups[i];
+	}
+
+	@Benchmark
+	public int binarySearch() {
+		return Arrays.binarySearch(keys, next());
+	}
+
+	@Benchmark
+	public int hashIndex() {
+		return index.indexOf(next());
+	}
+}
@@ -0,0 +1,49 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares sorting and checking the keys of many configurators on one thread with {@link ForkJoinPool}s
+ * of different sizes. Each tenant is a {@link Fixtures.Leaf} with 10 parameters.
+ * {@code threads} 0 uses the sequential path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelConfigureBenchmark {
+
+	@Param({"1000", "50000"})
+	public int tenants;
+
+	@Param({"0", "1", "2", "4", "8"})
+	public int threads;
+
+	private Configurator[] configurators;
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setup() {
+		configurators = Fixtures.leafConfigurators(10 * tenants);
+		pool = threads == 0 ? null : new ForkJoinPool(threads);
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public Configurator manage() {
+		return pool == null
+				? ConfigManager.manage(configurators)
+				: ConfigManager.manage(pool, configurators);
+	}
+}
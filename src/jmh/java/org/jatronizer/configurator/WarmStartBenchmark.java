@@ -0,0 +1,98 @@
+package org.jatronizer.configurator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving a configuration from command line arguments changing all parameters with applying the
+ * {@link ConfigImage} written after the first start. Both create the configurator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WarmStartBenchmark {
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	private String[] args;
+	private File image;
+	private ConfigSnapshot before;
+	private ConfigSnapshot after;
+
+	@Setup
+	public void setup() throws IOException {
+		Configurator configurator = ConfigManager.configure(Fixtures.configuration(size));
+		before = ConfigManager.snapshot(configurator);
+		args = changed(Fixtures.args(configurator));
+		if (ConfigManager.setFromArgs(configurator, args).length != 0) {
+			throw new IllegalStateException("arguments were not set");
+		}
+		after = ConfigManager.snapshot(configurator);
+		image = File.createTempFile("configurator", ".image");
+		image.deleteOnExit();
+		ConfigImage.write(image, configurator, ConfigImage.fingerprint(null, args));
+	}
+
+	// changes the values of all arguments so none of them is the default
+	private static String[] changed(String[] args) {
+		String[] changed = new String[args.length];
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if (value.equals("true") || value.equals("false")) {
+				value = value.equals("true") ? "false" : "true";
+			} else if (value.equals(Fixtures.Mode.online.name())) {
+				value = Fixtures.Mode.degraded.name();
+			} else if (arg.contains("separator=")) {
+				value = ";";
+			} else {
+				value = value + "1";
+			}
+			changed[i] = arg.substring(0, arg.indexOf('=') + 1) + value;
+		}
+		return changed;
+	}
+
+	@TearDown
+	public void tearDown() {
+		image.delete();
+	}
+
+	@Benchmark
+	public Configurator coldStart() {
+		Configurator configurator = ConfigManager.configure(Fixtures.configuration(size));
+		ConfigManager.setFromArgs(configurator, args);
+		return configurator;
+	}
+
+	@Benchmark
+	public Configurator warmStart() throws IOException {
+		Configurator configurator = ConfigManager.configure(Fixtures.configuration(size));
+		if (!ConfigImage.apply(image, configurator, ConfigImage.fingerprint(null, args))) {
+			throw new IllegalStateException("image was not applied");
+		}
+		return configurator;
+	}
+
+	@Benchmark
+	public Map<String, String> diff() {
+		return before.diff(after);
+	}
+
+	// diff without aligned snapshots
+	@Benchmark
+	public Map<String, String> diffMaps() {
+		Map<String, String> from = before.toMap();
+		Map<String, String> changed = after.toMap();
+		changed.entrySet().removeAll(from.entrySet());
+		return changed;
+	}
+}
@@ -0,0 +1,152 @@
+package org.jatronizer.configurator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Reads command line arguments for {@link ConfigManager#setFromCommandLine}.
+ * Argument keys are looked up in the cached index of {@link KeyNames} without splitting the arguments.
+ * In addition to {@code -key=value} and {@code -key} for booleans, a non-boolean {@code -key} takes the
+ * next argument as its value unless that is a key itself, and {@code @file} arguments are replaced by the arguments in the file.
+ * Argument files are read in chunks and their arguments are processed as they are found.
+ */
+final class ArgTokenizer {
+
+	private final Configurator configurator;
+	private final KeyNames names;
+	private final Map<String, String> dest;
+	private final Collection<String> unused;
+	// the key waiting for the next argument as its value and the argument naming it, null if there is none
+	private String pendingKey;
+	private String pendingArg;
+
+	ArgTokenizer(Configurator configurator, Map<String, String> dest, Collection<String> unused) {
+		this.configurator = configurator;
+		this.names = KeyNames.of(configurator);
+		this.dest = dest;
+		this.unused = unused;
+	}
+
+	/**
+	 * Reads all arguments in {@code args}.
+	 * An argument starting with {@code @} names an argument file, a leading {@code @@} stands for a literal
+	 * {@code @}. A key without a value, at the end or followed by another key, is unused.
+	 * @throws IOException if an argument file can not be read.
+	 */
+	void parse(String[] args) throws IOException {
+		for (String arg : args) {
+			if (arg.startsWith("@@")) {
+				add(arg.substring(1));
+			} else if (arg.length() > 1 && arg.charAt(0) == '@') {
+				read(new File(arg.substring(1)));
+			} else {
+				add(arg);
+			}
+		}
+		if (pendingArg != null) {
+			unused.add(pendingArg);
+			pendingKey = null;
+			pendingArg = null;
+		}
+	}
+
+	// processes a single argument
+	private void add(String arg) {
+		int sep = arg.indexOf('=');
+		int i = names.argIndex(arg, sep < 0 ? arg.length() : sep);
+		if (pendingKey != null) {
+			if (i < 0) {
+				dest.put(pendingKey, arg);
+				pendingKey = null;
+				pendingArg = null;
+				return;
+			}
+			// a known key is not a value, the pending key has none
+			unused.add(pendingArg);
+			pendingKey = null;
+			pendingArg = null;
+		}
+		if (i < 0) {
+			unused.add(arg);
+		} else if (sep >= 0) {
+			dest.put(names.key(i), arg.substring(sep + 1));
+		} else if (isBoolean(names.key(i))) {
+			// handle booleans without requiring "=true"
+			dest.put(names.key(i), "true");
+		} else {
+			pendingKey = names.key(i);
+			pendingArg = arg;
+		}
+	}
+
+	private boolean isBoolean(String key) {
+		Class<?> type = configurator.parameter(key).type();
+		return type == boolean.class || type == Boolean.class;
+	}
+
+	/**
+	 * Processes the arguments in {@code file}.
+	 * Arguments are separated by whitespace. Quotes ({@code "} or {@code '}) group characters including
+	 * whitespace and are removed, inside them a backslash escapes the next character. A {@code #} at the start
+	 * of an argument starts a comment up to the end of the line. Arguments starting with {@code @} are not
+	 * expanded.
+	 */
+	private void read(File file) throws IOException {
+		Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		try {
+			char[] buffer = new char[8192];
+			StringBuilder arg = new StringBuilder();
+			// the current argument is not empty even if arg is, e.g. for ""
+			boolean inArg = false;
+			boolean comment = false;
+			boolean escape = false;
+			char quote = 0;
+			for (int n; (n = in.read(buffer)) >= 0; ) {
+				for (int p = 0; p < n; p++) {
+					char c = buffer[p];
+					if (comment) {
+						comment = c != '\n' && c != '\r';
+					} else if (escape) {
+						arg.append(c);
+						escape = false;
+					} else if (quote != 0) {
+						if (c == quote) {
+							quote = 0;
+						} else if (c == '\\') {
+							escape = true;
+						} else {
+							arg.append(c);
+						}
+					} else if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+						if (inArg) {
+							add(arg.toString());
+							arg.setLength(0);
+							inArg = false;
+						}
+					} else if (c == '#' && !inArg) {
+						comment = true;
+					} else if (c == '"' || c == '\'') {
+						quote = c;
+						inArg = true;
+					} else {
+						arg.append(c);
+						inArg = true;
+					}
+				}
+			}
+			if (quote != 0) {
+				throw new ConfigException("unterminated quote in " + file);
+			}
+			if (inArg) {
+				add(arg.toString());
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
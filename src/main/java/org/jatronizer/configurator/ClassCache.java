@@ -0,0 +1,91 @@
+package org.jatronizer.configurator;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Caches a value per class without keeping the class from being unloaded.
+ * On Java 7 and later, the values are stored in a {@code ClassValue} (see {@code ClassValueCache}),
+ * else in a weak map with softly referenced values.
+ * Values are computed outside of any lock, they may be computed more than once and must be immutable.
+ * @param <V> Type of the cached values.
+ */
+abstract class ClassCache<V> {
+
+	/**
+	 * Computes the value for a class.
+	 */
+	interface Loader<V> {
+		V load(Class<?> type);
+	}
+
+	/**
+	 * Creates caches.
+	 */
+	interface Factory {
+		<V> ClassCache<V> cache(Loader<V> loader);
+	}
+
+	private static final Factory FACTORY = loadFactory();
+
+	private static Factory loadFactory() {
+		try {
+			// only packaged and loadable on Java 7 and later
+			Class<?> c = Class.forName("org.jatronizer.configurator.ClassValueCache$ClassValueFactory");
+			return (Factory) c.newInstance();
+		} catch (Exception e) {
+			// not available
+		} catch (LinkageError e) {
+			// compiled for a newer JVM
+		}
+		return WeakClassCache.FACTORY;
+	}
+
+	/**
+	 * Creates a cache computing missing values with {@code loader}.
+	 */
+	static <V> ClassCache<V> create(Loader<V> loader) {
+		return FACTORY.cache(loader);
+	}
+
+	/**
+	 * Retrieves the value for {@code type}, it is computed if it is not cached.
+	 */
+	abstract V get(Class<?> type);
+
+	/**
+	 * Stores values in a {@link WeakHashMap}.
+	 * The values are referenced softly because they usually reference their class.
+	 */
+	static final class WeakClassCache<V> extends ClassCache<V> {
+
+		static final Factory FACTORY = new Factory() {
+			public <V> ClassCache<V> cache(Loader<V> loader) {
+				return new WeakClassCache<V>(loader);
+			}
+		};
+
+		private final Loader<V> loader;
+		private final Map<Class<?>, SoftReference<V>> values = new WeakHashMap<Class<?>, SoftReference<V>>();
+
+		private WeakClassCache(Loader<V> loader) {
+			this.loader = loader;
+		}
+
+		V get(Class<?> type) {
+			SoftReference<V> ref;
+			synchronized (values) {
+				ref = values.get(type);
+			}
+			V value = ref == null ? null : ref.get();
+			if (value == null) {
+				value = loader.load(type);
+				synchronized (values) {
+					values.put(type, new SoftReference<V>(value));
+				}
+			}
+			return value;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package org.jatronizer.configurator;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Describes the fields annotated with {@link Parameter} declared by a configuration class.
+ * Descriptors are generated at compile time by the annotation processor in {@code configurator-processor}.
+ * A configuration with a descriptor is managed without scanning its fields and annotations at runtime,
+ * reflection is only used for fields the descriptor can not access directly, e.g. {@code private} fields.
+ *
+ * The descriptor of a class is named like the class with {@value #SUFFIX} appended to its binary name.
+ * It must be {@code public} and must provide its instance in a {@code public static final} field
+ * {@code INSTANCE}.
+ */
+public abstract class ConfigDescriptor {
+
+	/**
+	 * Is appended to the binary name of a configuration class to get the name of its descriptor.
+	 */
+	public static final String SUFFIX = "$$ConfigDescriptor";
+
+	/**
+	 * Describes a field annotated with {@link Parameter}.
+	 */
+	public static final class Entry {
+		final String field;
+		final String key;
+		final String tag;
+		final String description;
+		final boolean container;
+		final String converter;
+		final boolean readable;
+		final boolean writable;
+		final String[] options;
+		final String[] optionDescriptions;
+
+		/**
+		 * Creates an entry.
+		 * @param field The field name.
+		 * @param key The key as in {@link Parameter#key}, the field name if it is empty and the field is no container.
+		 * @param tag The tag as in {@link Parameter#tag}.
+		 * @param description The value of the {@link Description} annotation of the field or {@code ""}.
+		 * @param container Whether the field contains other parameters.
+		 * @param converter The binary name of the converter class, {@code null} for the default converter.
+		 * @param readable Whether {@link ConfigDescriptor#get} reads the field.
+		 * @param writable Whether {@link ConfigDescriptor#set} writes the field.
+		 * @param options The names of all enum values in ascending order; {@code null} if the field is no enum.
+		 * @param optionDescriptions The descriptions of {@code options} in the same order.
+		 */
+		public Entry(
+				String field,
+				String key,
+				String tag,
+				String description,
+				boolean container,
+				String converter,
+				boolean readable,
+				boolean writable,
+				String[] options,
+				String[] optionDescriptions
+		) {
+			this.field = field;
+			if (key == null || "".equals(key)) {
+				key = container ? "" : field;
+			}
+			this.key = key;
+			this.tag = tag == null ? "" : tag;
+			this.description = description == null ? "" : description;
+			this.container = container;
+			this.converter = converter;
+			this.readable = readable;
+			this.writable = writable;
+			this.options = options == null ? new String[0] : options;
+			this.optionDescriptions = optionDescriptions == null ? new String[0] : optionDescriptions;
+		}
+	}
+
+	// descriptors are kept alive by their INSTANCE field, so they must not be referenced strongly here
+	private static final Map<Class<?>, WeakReference<ConfigDescriptor>> DESCRIPTORS =
+			new WeakHashMap<Class<?>, WeakReference<ConfigDescriptor>>();
+
+	private static final WeakReference<ConfigDescriptor> NONE = new WeakReference<ConfigDescriptor>(null);
+
+	/**
+	 * Retrieves the generated descriptor of {@code type}.
+	 * @return the descriptor or {@code null} if {@code type} has none.
+	 */
+	static ConfigDescriptor of(Class<?> type) {
+		WeakReference<ConfigDescriptor> ref;
+		synchronized (DESCRIPTORS) {
+			ref = DESCRIPTORS.get(type);
+		}
+		ConfigDescriptor descriptor = ref == null ? null : ref.get();
+		if (descriptor != null || ref == NONE) {
+			return descriptor;
+		}
+		descriptor = load(type);
+		synchronized (DESCRIPTORS) {
+			DESCRIPTORS.put(type, descriptor == null ? NONE : new WeakReference<ConfigDescriptor>(descriptor));
+		}
+		return descriptor;
+	}
+
+	private static ConfigDescriptor load(Class<?> type) {
+		Class<?> c;
+		try {
+			c = Class.forName(type.getName() + SUFFIX, true, type.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+		try {
+			return (ConfigDescriptor) c.getField("INSTANCE").get(null);
+		} catch (Exception e) {
+			throw new ConfigException(c + " is no valid descriptor of " + type, e);
+		}
+	}
+
+	private final String description;
+	final Entry[] entries;
+
+	/**
+	 * Creates a descriptor.
+	 * @param description The value of the {@link Description} annotation of the class or {@code ""}.
+	 * @param entries The annotated fields, ordered by key.
+	 */
+	protected ConfigDescriptor(String description, Entry... entries) {
+		this.description = description == null ? "" : description;
+		this.entries = entries;
+	}
+
+	/**
+	 * Retrieves the description of the configuration class.
+	 * @return the description.
+	 */
+	public String description() {
+		return description;
+	}
+
+	/**
+	 * Reads the field of entry {@code index} from {@code configuration}.
+	 * It is only called for entries marked as readable.
+	 * @param configuration An instance of the described class.
+	 * @param index The index of the entry.
+	 * @return The value of the field, primitives are boxed.
+	 */
+	protected Object get(Object configuration, int index) {
+		throw new UnsupportedOperationException(entries[index].field + " is not readable");
+	}
+
+	/**
+	 * Writes the field of entry {@code index} on {@code configuration}.
+	 * It is only called for entries marked as writable.
+	 * @param configuration An instance of the described class.
+	 * @param index The index of the entry.
+	 * @param value The new value of the field, primitives are boxed.
+	 */
+	protected void set(Object configuration, int index, Object value) {
+		throw new UnsupportedOperationException(entries[index].field + " is not writable");
+	}
+}
@@ -0,0 +1,278 @@
+package org.jatronizer.configurator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores the resolved configuration of a {@link Configurator} in a binary image for fast restarts.
+ * After a successful start, {@link #write} stores all values that differ from their defaults together with
+ * a fingerprint of the sources they were read from. On the next start, {@link #apply} sets them directly if
+ * the fingerprint still matches, without reading environment variables, arguments or files:
+ * <pre>
+ * long fingerprint = ConfigImage.fingerprint(System.getenv(), args, file);
+ * if (!ConfigImage.apply(image, configurator, fingerprint)) {
+ *     ConfigManager.setFromFile(configurator, file);
+ *     ConfigManager.setFromEnv(configurator, "APP_");
+ *     ConfigManager.setFromArgs(configurator, args);
+ *     ConfigImage.write(image, configurator, fingerprint);
+ * }
+ * </pre>
+ * The image also holds a fingerprint of the keys and default values of the configurator, so it is not applied
+ * after the configuration classes changed.
+ */
+public final class ConfigImage {
+
+	// Static class without instances, constructor is hidden
+	private ConfigImage() {}
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// "CFGI"
+	private static final int MAGIC = 0x43464749;
+	private static final int VERSION = 1;
+	// magic, version, source and layout fingerprints, number of entries
+	private static final int HEADER = 4 + 4 + 8 + 8 + 4;
+	// checksum at the end
+	private static final int TRAILER = 8;
+
+	// FNV-1a, 64 bit; strings are hashed by char and images by long
+	private static final long FNV_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Computes the fingerprint of the configuration sources.
+	 * Files are identified by their path, size and modification time, their content is not read.
+	 * @param env The environment variables, e.g. {@link System#getenv()}. May be {@code null}.
+	 * @param args The command line arguments. May be {@code null}.
+	 * @param files The configuration files, they need not exist.
+	 * @return the fingerprint.
+	 */
+	public static long fingerprint(Map<String, String> env, String[] args, File... files) {
+		long h = FNV_BASIS;
+		if (env != null) {
+			// independent of the iteration order
+			long entries = 0;
+			for (Map.Entry<String, String> e : env.entrySet()) {
+				entries += hash(hash(FNV_BASIS, e.getKey()), e.getValue());
+			}
+			h = hash(h, entries);
+		}
+		h = hash(h, args == null ? -1 : args.length);
+		if (args != null) {
+			for (String arg : args) {
+				h = hash(h, arg);
+			}
+		}
+		for (File file : files) {
+			h = hash(h, file.getAbsolutePath());
+			h = hash(h, file.exists() ? file.length() : -1);
+			h = hash(h, file.lastModified());
+		}
+		return h;
+	}
+
+	/**
+	 * Writes the values of {@code configurator} that differ from their defaults to {@code image}.
+	 * The image is written to a temporary file first and then replaces {@code image}.
+	 * @param image The image file.
+	 * @param configurator The configurator with the resolved configuration.
+	 * @param fingerprint The fingerprint of the configuration sources, see {@link #fingerprint}.
+	 * @throws IOException if the image can not be written.
+	 */
+	public static void write(File image, Configurator configurator, long fingerprint) throws IOException {
+		ConfigSnapshot defaults = ConfigManager.defaults(configurator);
+		Map<String, String> entries = defaults.diff(ConfigManager.snapshot(configurator));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER + TRAILER + 32 * entries.size());
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(fingerprint);
+		out.writeLong(layout(defaults));
+		out.writeInt(entries.size());
+		for (Map.Entry<String, String> e : entries.entrySet()) {
+			writeString(out, e.getKey());
+			writeString(out, e.getValue());
+		}
+		out.flush();
+		byte[] data = bytes.toByteArray();
+		long checksum = hash(FNV_BASIS, ByteBuffer.wrap(data), 0, data.length);
+		File dir = image.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(image.getName() + ".new", ".tmp", dir);
+		try {
+			DataOutputStream file = new DataOutputStream(new FileOutputStream(tmp));
+			try {
+				file.write(data);
+				file.writeLong(checksum);
+			} finally {
+				file.close();
+			}
+			if (!tmp.renameTo(image) && !(image.delete() && tmp.renameTo(image))) {
+				throw new IOException("could not replace " + image);
+			}
+		} finally {
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * Sets the values in {@code image} on {@code configurator} if the image was written for the same
+	 * configuration sources and configuration classes. The image is memory-mapped, its values are set with
+	 * {@link ConfigManager#apply}, so either all or none of them are set.
+	 * @param image The image file.
+	 * @param configurator The configurator.
+	 * @param fingerprint The fingerprint of the current configuration sources, see {@link #fingerprint}.
+	 * @return {@code true} if the values were set; {@code false} if the image is missing, damaged or outdated
+	 * and the configuration must be read from its sources.
+	 * @throws IOException if the image exists but can not be read.
+	 */
+	public static boolean apply(File image, Configurator configurator, long fingerprint) throws IOException {
+		if (!image.isFile()) {
+			return false;
+		}
+		Map<String, String> entries;
+		RandomAccessFile raf = new RandomAccessFile(image, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			if (size < HEADER + TRAILER || size > Integer.MAX_VALUE) {
+				return false;
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			entries = read(buffer, (int) size - TRAILER, configurator, fingerprint);
+		} finally {
+			raf.close();
+		}
+		return entries != null && ConfigManager.apply(configurator, entries).isEmpty();
+	}
+
+	// reads the entries in buffer before end, null if the image does not fit
+	private static Map<String, String> read(ByteBuffer buffer, int end, Configurator configurator, long fingerprint) {
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getLong(8) != fingerprint) {
+			return null;
+		}
+		if (buffer.getLong(end) != hash(FNV_BASIS, buffer, 0, end)) {
+			return null;
+		}
+		if (buffer.getLong(16) != layout(ConfigManager.defaults(configurator))) {
+			return null;
+		}
+		KeyIndex index = KeyIndex.of(configurator);
+		int count = buffer.getInt(24);
+		HashMap<String, String> entries = new HashMap<String, String>(2 * count);
+		byte[] tmp = new byte[256];
+		int p = HEADER;
+		for (int n = 0; n < count; n++) {
+			int keyLength = length(buffer, p, end);
+			if (keyLength < 0) {
+				return null;
+			}
+			int keyStart = p + 4;
+			int keyEnd = keyStart + keyLength;
+			int valueLength = length(buffer, keyEnd, end);
+			int i = ascii(buffer, keyStart, keyEnd)
+					? index.indexOf(buffer, keyStart, keyEnd, hashCode(buffer, keyStart, keyEnd))
+					: index.indexOf(decode(buffer, keyStart, keyLength, tmp));
+			if (i < 0 || valueLength < -1) {
+				return null;
+			}
+			p = keyEnd + 4;
+			entries.put(index.key(i), valueLength < 0 ? null : decode(buffer, p, valueLength, tmp));
+			p += Math.max(valueLength, 0);
+		}
+		return p == end ? entries : null;
+	}
+
+	// fingerprint of the keys and default values
+	private static long layout(ConfigSnapshot defaults) {
+		long h = hash(FNV_BASIS, defaults.size());
+		for (int i = 0; i < defaults.size(); i++) {
+			h = hash(hash(h, defaults.key(i)), defaults.valueAt(i));
+		}
+		return h;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	// reads the length of the string at p, -2 if it does not fit before end
+	private static int length(ByteBuffer buffer, int p, int end) {
+		if (p + 4 > end) {
+			return -2;
+		}
+		int length = buffer.getInt(p);
+		return length > end - p - 4 ? -2 : length;
+	}
+
+	private static boolean ascii(ByteBuffer buffer, int start, int end) {
+		for (int p = start; p < end; p++) {
+			if (buffer.get(p) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// String.hashCode of the ASCII bytes
+	private static int hashCode(ByteBuffer buffer, int start, int end) {
+		int h = 0;
+		for (int p = start; p < end; p++) {
+			h = 31 * h + buffer.get(p);
+		}
+		return h;
+	}
+
+	// decodes length bytes at start using tmp if it is large enough
+	private static String decode(ByteBuffer buffer, int start, int length, byte[] tmp) {
+		byte[] bytes = tmp != null && tmp.length >= length ? tmp : new byte[length];
+		ByteBuffer src = buffer.duplicate();
+		src.position(start);
+		src.get(bytes, 0, length);
+		return new String(bytes, 0, length, UTF8);
+	}
+
+	private static long hash(long h, long value) {
+		for (int i = 0; i < 8; i++) {
+			h = (h ^ (value & 0xff)) * FNV_PRIME;
+			value >>>= 8;
+		}
+		return h;
+	}
+
+	private static long hash(long h, String s) {
+		if (s == null) {
+			return hash(h, -1L);
+		}
+		h = hash(h, s.length());
+		for (int i = 0; i < s.length(); i++) {
+			h = (h ^ s.charAt(i)) * FNV_PRIME;
+		}
+		return h;
+	}
+
+	private static long hash(long h, ByteBuffer buffer, int start, int end) {
+		int p = start;
+		for (; p + 8 <= end; p += 8) {
+			h = (h ^ buffer.getLong(p)) * FNV_PRIME;
+		}
+		for (; p < end; p++) {
+			h = (h ^ (buffer.get(p) & 0xff)) * FNV_PRIME;
+		}
+		return h;
+	}
+}
@@ -0,0 +1,19 @@
+package org.jatronizer.configurator;
+
+import java.util.Set;
+
+/**
+ * Receives notifications about changed parameter values.
+ * A listener is added with {@link ConfigManager#addListener} and called on the {@link java.util.concurrent.Executor}
+ * passed there. Changes made while a notification is pending are reported together; calls for the same
+ * listener never overlap.
+ */
+public interface ConfigListener {
+
+	/**
+	 * Is called after the values of one or more parameters changed.
+	 * @param configurator the configurator the listener was added to.
+	 * @param keys the keys of all parameters changed since the last call.
+	 */
+	void changed(Configurator configurator, Set<String> keys);
+}
@@ -1,11 +1,12 @@
 package org.jatronizer.configurator;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.util.*;
-
-import static org.jatronizer.configurator.ConfigSupport.KeyFormat.arg;
-import static org.jatronizer.configurator.ConfigSupport.KeyFormat.env;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Creates managed configurations.
@@ -98,10 +99,63 @@ public final class ConfigManager {
 		if (configuration == null) {
 			throw new NullPointerException("configuration is null");
 		}
-		if (params.length == 0) {
-			params = parameters(configuration, keyPrefix);
+		long start = Metrics.start();
+		Configurator c = params.length == 0
+				? InstanceConfigurator.control(configuration, name, keyPrefix == null ? "" : keyPrefix, tag, description)
+				: InstanceConfigurator.control(configuration, name, tag, description, params);
+		return configured(c, start);
+	}
+
+	// records the creation of c if it is measured
+	private static Configurator configured(Configurator c, long start) {
+		if (start != 0) {
+			Metrics.end(ConfigMetrics.Operation.configure, KeyIndex.of(c).size(), start);
+		}
+		return c;
+	}
+
+	/**
+	 * Creates a {@link Configurator} for {@code configuration} that binds parameters on first use.
+	 * The parameters of each container are only bound when one of them is read, set or walked; default values
+	 * are the values of the fields when they are bound. This saves the parameter objects and their rendered
+	 * defaults for parts of large configurations that are never used.
+	 * The key table is not lazy: the container tree is walked and the full key of every parameter is built
+	 * immediately, because {@link Configurator#keys}, {@link Configurator#hasKey} and the duplicate key checks
+	 * of {@link #manage} need all keys. The time and memory for this is the same as without lazy binding.
+	 * @param configuration An instance of a class with {@link Parameter} annotated fields, must not be {@code null}.
+	 * @param name The name of the configuration.
+	 * @param keyPrefix A common prefix for all keys in this configuration.
+	 * @param tag One or more space-separated tags.
+	 * @param description A description, an alternative to the {@link Description} annotation.
+	 * @param <C> Type of the configuration.
+	 * @return Configurator for {@code configuration}.
+	 */
+	public static <C> Configurator configureLazily(
+			C configuration, String name, String keyPrefix, String tag, String description) {
+		if (configuration == null) {
+			throw new NullPointerException("configuration is null");
+		}
+		long start = Metrics.start();
+		return configured(InstanceConfigurator.controlLazily(configuration, name, keyPrefix, tag, description), start);
+	}
+
+	/**
+	 * Creates a {@link Configurator} for another instance of the configuration managed by {@code configurator}.
+	 * Keys, names and parameter metadata are reused, the class of {@code configuration} is not scanned again.
+	 * This is cheap enough for short-lived configurations, e.g. one per request.
+	 * Listeners of {@code configurator} are also notified of changes in the new configurator.
+	 * @param configurator A Configurator created by {@link #configure} for a single configuration without
+	 *               explicit parameters.
+	 * @param configuration An instance of the same class as the configuration of {@code configurator}.
+	 * @param <C> Type of the configuration.
+	 * @return Configurator for {@code configuration}.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C> Configurator rebind(Configurator configurator, C configuration) {
+		if (!(configurator instanceof InstanceConfigurator)) {
+			throw new ConfigException("only configurators of a single configuration can be rebound");
 		}
-		return InstanceConfigurator.control(configuration, name, tag, description, params);
+		return ((InstanceConfigurator<C>) configurator).rebind(configuration);
 	}
 
 	/**
@@ -119,12 +173,31 @@ public final class ConfigManager {
 		if (configurations.length == 0) {
 			throw new ConfigException("configurations are empty");
 		}
+		long start = Metrics.start();
 		// create all configurators
 		Configurator[] configurators = new Configurator[configurations.length];
 		for (int i = 0; i < configurations.length; i++) {
 			configurators[i] = InstanceConfigurator.control(configurations[i]);
 		}
-		return manage(configurators);
+		return configured(manage(configurators), start);
+	}
+
+	/**
+	 * Creates a {@link Configurator} for configurations with {@link Parameter} annotated fields in parallel.
+	 * The result is the same as for {@link #configure(Object[])}; the configurations are scanned and their keys
+	 * sorted and checked in tasks on {@code executor}, e.g. a {@code java.util.concurrent.ForkJoinPool}.
+	 * This is only faster for thousands of configurations.
+	 * @param executor The executor running the tasks.
+	 * @param configurations The configuration instances.
+	 * @param <C> Type of the configuration.
+	 * @return Common Configurator for the configurations.
+	 */
+	public static <C> Configurator configure(ExecutorService executor, C... configurations) {
+		if (configurations.length == 0) {
+			throw new ConfigException("configurations are empty");
+		}
+		long start = Metrics.start();
+		return configured(ParallelConfigure.configure(executor, configurations), start);
 	}
 
 	/**
@@ -143,6 +216,208 @@ public final class ConfigManager {
 		return MultiConfigurator.configure(configurators);
 	}
 
+	/**
+	 * Creates a {@link Configurator} wrapping other configurators, the keys are sorted and checked in parallel.
+	 * The result is the same as for {@link #manage(Configurator...)}.
+	 * @param executor The executor running the tasks.
+	 * @param configurators The configurators to be wrapped.
+	 * @return Common Configurator including the specified Configurators.
+	 */
+	public static Configurator manage(ExecutorService executor, Configurator... configurators) {
+		if (configurators.length == 0) {
+			throw new ConfigException("configurators are empty");
+		}
+		return ParallelConfigure.manage(executor, configurators);
+	}
+
+	/**
+	 * Sets all values in {@code configuration} or none of them.
+	 * All values are converted before the first one is set. If a key is unknown or a value can not be converted,
+	 * nothing is changed. Else all values are set while the affected configurations are locked, so
+	 * {@link #snapshot} sees either none or all of the new values; so do {@link Configurator#value} and
+	 * {@link Configurator#walk} in concurrent mode (see {@link #concurrent}), otherwise they read without locking.
+	 * If a converted value can not be set, the values that were already set are restored.
+	 * Parameters of {@code Configurator} implementations not created by {@code ConfigManager} are not locked.
+	 * @param configurator The configurator managing the parameters.
+	 * @param configuration The new values by key.
+	 * @return The invalid key-value combinations, nothing was set if it is not empty.
+	 */
+	public static Map<String, String> apply(Configurator configurator, Map<String, String> configuration) {
+		long start = Metrics.start();
+		Map<String, String> invalid = StagedBatch.apply(configurator, configuration);
+		Metrics.end(ConfigMetrics.Operation.set, configuration.size(), invalid.size(), start);
+		return invalid;
+	}
+
+	/**
+	 * Switches {@code configurator} and the configurators it manages to concurrent mode.
+	 * The values of all parameters are kept in an immutable snapshot that is replaced on each change.
+	 * {@link Configurator#value}, {@link Configurator#walk} and {@link #snapshot} read the latest snapshot
+	 * without locking; they always see consistent values, even while a batch is being applied.
+	 * Listeners stay subscribed. Values read directly from the fields of a configuration are only guaranteed
+	 * to be up to date after the current snapshot was read.
+	 * @param configurator A configurator created by {@link #configure} or {@link #manage}.
+	 * @return {@code configurator}, now in concurrent mode.
+	 */
+	public static Configurator concurrent(Configurator configurator) {
+		if (configurator instanceof InstanceConfigurator) {
+			return ((InstanceConfigurator) configurator).concurrent();
+		}
+		if (configurator instanceof MultiConfigurator) {
+			return ((MultiConfigurator) configurator).concurrent();
+		}
+		throw new ConfigException("configurator " + configurator + " does not support concurrent mode");
+	}
+
+	/**
+	 * Switches {@code configurator} and the configurators it manages to a mode that detects values written
+	 * without a configurator.
+	 * Configurators created by {@code ConfigManager} cache the rendered values until they are set through the
+	 * configurator. In verification mode, each read of a cached value renders it again and throws a
+	 * {@link ConfigException} if it differs. This is meant for tests.
+	 * @param configurator The configurator.
+	 * @return {@code configurator}.
+	 */
+	public static Configurator verifying(Configurator configurator) {
+		if (configurator instanceof InstanceConfigurator) {
+			return ((InstanceConfigurator) configurator).verifying();
+		}
+		if (configurator instanceof MultiConfigurator) {
+			return ((MultiConfigurator) configurator).verifying();
+		}
+		return configurator;
+	}
+
+	/**
+	 * Takes a snapshot of the values of all parameters in {@code configurator}.
+	 * For a configurator in concurrent mode (see {@link #concurrent}), this does not copy any values.
+	 * Snapshots of configurators managing multiple configurations are consistent per configuration.
+	 * @param configurator The configurator.
+	 * @return the snapshot.
+	 */
+	public static ConfigSnapshot snapshot(Configurator configurator) {
+		return ConfigSnapshot.of(configurator);
+	}
+
+	/**
+	 * Installs a sink for measurements of configuration operations, see {@link ConfigMetrics.Operation}.
+	 * Operations that started before are not measured. Without a sink, operations only check for one.
+	 * @param metrics The sink, {@code null} to stop measuring.
+	 */
+	public static void setMetrics(ConfigMetrics metrics) {
+		Metrics.sink = metrics;
+	}
+
+	/**
+	 * Creates a sink that emits measurements as Java Flight Recorder events in the category "Configurator":
+	 * one event per operation with its duration, values and failures, one per changed value with the
+	 * lengths of the previous and the new value and one per value that could not be converted.
+	 * The events are disabled by default and must be enabled in the settings of a recording; until then, the
+	 * sink only checks whether they are. Install it with {@link #setMetrics}.
+	 * @return the sink, {@code null} before Java 11, if the Flight Recorder is not available or if the library
+	 * was built with a JDK older than 11.
+	 */
+	public static ConfigMetrics flightRecorderMetrics() {
+		return Metrics.flightRecorder();
+	}
+
+	/**
+	 * Retrieves the installed sink for measurements, see {@link #setMetrics}.
+	 * @return the sink or {@code null}.
+	 */
+	public static ConfigMetrics metrics() {
+		return Metrics.sink;
+	}
+
+	/**
+	 * Retrieves the default values of all parameters in {@code configurator}.
+	 * Compared with {@link ConfigSnapshot#diff}, it shows which values differ from their defaults.
+	 * Lazily bound parameters (see {@link #configureLazily}) are bound.
+	 * @param configurator The configurator.
+	 * @return the default values.
+	 */
+	public static ConfigSnapshot defaults(Configurator configurator) {
+		return ConfigSnapshot.defaults(configurator);
+	}
+
+	/**
+	 * Sets all values in {@code snapshot} that differ from the current values with {@link #apply}.
+	 * Restoring a snapshot taken earlier rolls back all changes made since then.
+	 * @param configurator The configurator.
+	 * @param snapshot The values to restore, usually a snapshot of {@code configurator}.
+	 * @return The invalid key-value combinations, nothing was set if it is not empty.
+	 */
+	public static Map<String, String> restore(Configurator configurator, ConfigSnapshot snapshot) {
+		return apply(configurator, snapshot(configurator).diff(snapshot));
+	}
+
+	/**
+	 * Retrieves a view of the parameters in {@code configurator} with keys starting with {@code keyPrefix},
+	 * e.g. {@code "smtp/warn/"}. Changes are made on and seen from {@code configurator}; setting or looking up
+	 * keys outside of the view fails as for unknown keys.
+	 * The keys are found in a sorted index, creating the view does not copy anything and {@code keys} and
+	 * {@code walk} of the view take time proportional to the number of its parameters for configurators
+	 * created by {@code ConfigManager}.
+	 * @param configurator The configurator.
+	 * @param keyPrefix The common prefix of all keys in the view.
+	 * @return the view.
+	 */
+	public static Configurator subtree(Configurator configurator, String keyPrefix) {
+		return Subtree.of(configurator, keyPrefix == null ? "" : keyPrefix);
+	}
+
+	/**
+	 * Adds a listener for changes of all parameters with keys starting with {@code keyPrefix}.
+	 * The listener is called on {@code executor} after a call to one of the {@code set} methods of
+	 * {@code configurator} or {@link #apply} changed values. Changes made before a pending call runs are
+	 * reported with it, so a batch or a burst of changes results in a single call.
+	 * Changes made through configurators not created by {@code ConfigManager} are not reported.
+	 * @param configurator A configurator created by {@link #configure} or {@link #manage}.
+	 * @param keyPrefix The common prefix of all observed keys, {@code ""} or {@code null} for all keys.
+	 * @param listener The listener.
+	 * @param executor The executor running the listener; it must not block when the listener is slow.
+	 */
+	public static void addListener(
+			Configurator configurator,
+			String keyPrefix,
+			ConfigListener listener,
+			Executor executor) {
+		Subscription.attach(configurator, new Subscription(configurator, listener, executor, null, keyPrefix));
+	}
+
+	/**
+	 * Adds a listener for changes of the parameters with the specified {@code keys}.
+	 * See {@link #addListener(Configurator, String, ConfigListener, Executor)}.
+	 * @param configurator A configurator created by {@link #configure} or {@link #manage}.
+	 * @param keys The observed keys.
+	 * @param listener The listener.
+	 * @param executor The executor running the listener.
+	 */
+	public static void addListener(
+			Configurator configurator,
+			String[] keys,
+			ConfigListener listener,
+			Executor executor) {
+		HashSet<String> observed = new HashSet<String>(keys.length * 2);
+		for (String key : keys) {
+			if (!configurator.hasKey(key)) {
+				throw new ConfigException("unknown key " + key);
+			}
+			observed.add(key);
+		}
+		Subscription.attach(configurator, new Subscription(configurator, listener, executor, observed, null));
+	}
+
+	/**
+	 * Removes all registrations of {@code listener} from {@code configurator}.
+	 * A pending call may still run.
+	 * @param configurator The configurator the listener was added to.
+	 * @param listener The listener.
+	 */
+	public static void removeListener(Configurator configurator, ConfigListener listener) {
+		Subscription.detach(configurator, listener);
+	}
+
 	/**
 	 * Prints a help text for all configurations and parameters available in the specified {@link Configurator}.
 	 * It also prints environment variable names and command line argument keys (-key=value)
@@ -155,6 +430,7 @@ public final class ConfigManager {
 	public static void printHelpFor(Configurator configurator, String envVarPrefix, OutputStream out) {
 		HelpPrinter help = new HelpPrinter(out, envVarPrefix);
 		configurator.walk(help);
+		help.flush();
 		try {
 			out.write((int) '\n');
 		} catch (Exception e) {
@@ -177,11 +453,7 @@ public final class ConfigManager {
 	 * @return The number of pairs that were or would have been stored in {@code dest}.
 	 */
 	public static int getArgs(Map<String, String> dest, Collection<String> destUnused, String[] keys, String[] args) {
-		String[] collisions = ConfigSupport.collisions(arg, keys);
-		if (collisions.length > 0) {
-			throw new ConfigException("collisions for command line argument keys: " + Arrays.toString(collisions));
-		}
-		return ConfigSupport.parseValues(dest, destUnused, keys, ARG_PREFIX, arg, args);
+		return new KeyNames(keys.clone()).parseArgs(dest, destUnused, args);
 	}
 
 	/**
@@ -198,14 +470,7 @@ public final class ConfigManager {
 	 * @return The number of pairs that were or would have been stored in {@code dest}.
 	 */
 	public static int getEnv(Map<String, String> dest, String envPrefix, String[] keys) {
-		String[] collisions = ConfigSupport.collisions(env, keys);
-		if (collisions.length > 0) {
-			throw new ConfigException("collisions for environment keys: " + Arrays.toString(collisions));
-		}
-		if (envPrefix == null) {
-			envPrefix = "";
-		}
-		return ConfigSupport.values(dest, keys, envPrefix, env, System.getenv());
+		return new KeyNames(keys.clone()).readEnv(dest, envPrefix, System.getenv());
 	}
 
 	/**
@@ -216,13 +481,47 @@ public final class ConfigManager {
 	 * @return Skipped arguments (unknown key or illegal value).
 	 */
 	public static String[] setFromArgs(Configurator configurator, String[] args) {
+		long start = Metrics.start();
 		ArrayList<String> unused = new ArrayList<String>(args.length / 2);
 		HashMap<String, String> config = new HashMap<String, String>(args.length, 1.0f);
-		getArgs(config, unused, configurator.keys(), args);
+		KeyNames.of(configurator).parseArgs(config, unused, args);
 		Map<String, String> invalid = configurator.set(config);
 		for (Map.Entry<String, String> entry : invalid.entrySet()) {
 			unused.add(entry.getKey() + "=" + entry.getValue());
 		}
+		Metrics.end(ConfigMetrics.Operation.args, args.length, unused.size(), start);
+		return unused.toArray(new String[unused.size()]);
+	}
+
+	/**
+	 * Sets configuration options from command line arguments and returns the arguments that could not be
+	 * recognized. Arguments of the forms accepted by {@link #setFromArgs} have the same effect. In addition,
+	 * <ul>
+	 *     <li>a key of a parameter that is not a boolean takes the next argument as its value:
+	 *     {@code -port 8080} is the same as {@code -port=8080}. If the next argument is a key itself,
+	 *     as in {@code -port -verbose}, the key has no value;</li>
+	 *     <li>{@code @file} is replaced by the arguments in {@code file}. They are separated by whitespace,
+	 *     quotes group characters including whitespace and a {@code #} at the start of an argument starts a
+	 *     comment up to the end of the line. {@code @@} at the start of an argument stands for a single
+	 *     {@code @}.</li>
+	 * </ul>
+	 * Argument files are read as a stream, so they can be large. All values are set with a single call to
+	 * {@link Configurator#set(Map)}.
+	 * @param configurator The configurator managing the configuration options.
+	 * @param args The command line arguments.
+	 * @return Skipped arguments (unknown key, illegal value or a key without its value).
+	 * @throws IOException if an argument file can not be read.
+	 */
+	public static String[] setFromCommandLine(Configurator configurator, String[] args) throws IOException {
+		long start = Metrics.start();
+		ArrayList<String> unused = new ArrayList<String>();
+		HashMap<String, String> config = new HashMap<String, String>();
+		new ArgTokenizer(configurator, config, unused).parse(args);
+		Map<String, String> invalid = configurator.set(config);
+		for (Map.Entry<String, String> entry : invalid.entrySet()) {
+			unused.add(entry.getKey() + "=" + entry.getValue());
+		}
+		Metrics.end(ConfigMetrics.Operation.commandLine, args.length, unused.size(), start);
 		return unused.toArray(new String[unused.size()]);
 	}
 
@@ -233,9 +532,45 @@ public final class ConfigManager {
 	 * @param envVarPrefix Common prefix for environment variables used by the program.
 	 */
 	public static void setFromEnv(Configurator configurator, String envVarPrefix) {
-		Map<String, String> src = System.getenv();
-		HashMap<String, String> config = new HashMap<String, String>(src.size(), 1.0f);
-		getEnv(config, envVarPrefix, configurator.keys());
-		configurator.set(config);
+		setFromEnv(configurator, envVarPrefix, System.getenv());
+	}
+
+	/**
+	 * Sets configuration options from {@code env} as if it were the environment.
+	 * See {@link #getEnv} for details. The variable names of the keys are formatted once per configurator and
+	 * prefix; {@code env} or the keys, whichever is smaller, are scanned once and all matches are set with a
+	 * single call to {@link Configurator#set(Map)}.
+	 * @param configurator The configurator managing the configuration options.
+	 * @param envVarPrefix Common prefix for environment variables used by the program.
+	 * @param env The environment variables by name, e.g. {@link System#getenv()}.
+	 * @return key-value combinations that could not be set.
+	 */
+	public static Map<String, String> setFromEnv(Configurator configurator, String envVarPrefix, Map<String, String> env) {
+		long start = Metrics.start();
+		HashMap<String, String> config = new HashMap<String, String>();
+		KeyNames.of(configurator).readEnv(config, envVarPrefix, env);
+		Map<String, String> invalid = config.isEmpty() ? config : configurator.set(config);
+		Metrics.end(ConfigMetrics.Operation.env, config.size(), invalid.size(), start);
+		return invalid;
+	}
+
+	/**
+	 * Sets configuration options from a file with one {@code key=value} entry per line.
+	 * The file is UTF-8 encoded; blank lines and lines starting with {@code #} or {@code !} are ignored.
+	 * Blanks around keys and before values are ignored, unlike {@link java.util.Properties} there are no escapes
+	 * or continuation lines. The file is memory-mapped, lines with unknown keys are skipped without being
+	 * converted to {@code String}s; all other entries are set with a single call to
+	 * {@link Configurator#set(Map)}.
+	 * @param configurator The configurator managing the configuration options.
+	 * @param file The file.
+	 * @return key-value combinations with known keys that could not be set.
+	 * @throws IOException if the file can not be read.
+	 */
+	public static Map<String, String> setFromFile(Configurator configurator, File file) throws IOException {
+		long start = Metrics.start();
+		Map<String, String> entries = FlatFileLoader.read(file, KeyIndex.of(configurator), FlatFileLoader.WINDOW);
+		Map<String, String> invalid = configurator.set(entries);
+		Metrics.end(ConfigMetrics.Operation.file, entries.size(), invalid.size(), start);
+		return invalid;
 	}
 }
@@ -0,0 +1,87 @@
+package org.jatronizer.configurator;
+
+/**
+ * Receives measurements of configuration operations.
+ * A sink is installed with {@link ConfigManager#setMetrics}; without one, nothing is measured.
+ * Implementations are called from the threads performing the operations and must be thread safe and fast,
+ * e.g. by passing the measurements on to an external metrics registry.
+ * {@link InMemoryConfigMetrics} keeps counts and latency histograms in memory.
+ */
+public interface ConfigMetrics {
+
+	/**
+	 * The measured operations.
+	 */
+	enum Operation {
+		/**
+		 * Creating a configurator with {@code ConfigManager.configure} or {@code configureLazily},
+		 * the values are the number of parameters.
+		 */
+		configure,
+		/**
+		 * A call to one of the {@code set} methods of a configurator or to {@link ConfigManager#apply},
+		 * the values are the number of entries passed.
+		 */
+		set,
+		/**
+		 * Walking a single configuration, the values are the number of visited parameters.
+		 */
+		walk,
+		/**
+		 * {@link ConfigManager#setFromArgs}, the values are the number of arguments.
+		 */
+		args,
+		/**
+		 * {@link ConfigManager#setFromEnv}, the values are the number of matching variables.
+		 */
+		env,
+		/**
+		 * {@link ConfigManager#setFromFile}, the values are the number of entries with known keys.
+		 */
+		file,
+		/**
+		 * {@link ConfigManager#setFromCommandLine}, the values are the number of arguments.
+		 */
+		commandLine,
+		/**
+		 * Reading the parameters and containers declared by a class, done once per class during
+		 * {@code configure}; the values are the number of parameters. Includes creating the converters.
+		 */
+		scan,
+		/**
+		 * Creating the converter of a parameter while a class is scanned, the values are always {@code 1}.
+		 */
+		converter,
+		/**
+		 * Sorting the keys of a configurator, the values are the number of keys.
+		 */
+		sort
+	}
+
+	/**
+	 * Records a completed operation.
+	 * @param operation The operation.
+	 * @param values The number of values involved, see {@link Operation}.
+	 * @param failures The number of values or arguments that could not be set.
+	 * @param nanos The duration in nanoseconds.
+	 */
+	void record(Operation operation, int values, int failures, long nanos);
+
+	/**
+	 * Records a changed parameter value. Only called if the value differs from the previous one.
+	 * @param key The key of the parameter.
+	 * @param previousLength The length of the previous value, {@code -1} for {@code null}.
+	 * @param length The length of the new value, {@code -1} for {@code null}.
+	 * @param converter The class of the converter of the parameter, the class of the parameter if it
+	 *                  is not known.
+	 */
+	void changed(String key, int previousLength, int length, Class<?> converter);
+
+	/**
+	 * Records a value that could not be set.
+	 * @param key The key of the parameter.
+	 * @param converter The class of the converter of the parameter, the class of the parameter if it
+	 *                  is not known.
+	 */
+	void conversionFailed(String key, Class<?> converter);
+}
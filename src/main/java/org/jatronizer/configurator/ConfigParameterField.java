@@ -1,15 +1,13 @@
 package org.jatronizer.configurator;
 
-import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.Arrays;
-import java.util.Comparator;
 
 /**
  * {@code ConfigParameterField} represents one of the parameters managed by a {@code InstanceConfigurator}.
  * It provides methods to get and set values of the parameter and to access metadata,
  * e.g. the parameter type and available values if it's an enum.
+ * The metadata is shared by all instances of the same field, see {@link FieldTemplate}.
  * @param <C> Type of the configuration.
  * @param <P> Type of the configuration parameter.
  */
@@ -18,12 +16,9 @@ final class ConfigParameterField<C,P> implements ConfigParameter<C,P> {
 	private final C configuration;
 	public final String key;
 	public final String defaultValue;
-	public final String description;
-	private final String tag;
-	private final Converter<P> converter;
-	private final Field field;
-	private final String[] enumNames;
-	private final Field[] enumFields;
+	private final FieldTemplate<P> template;
+	// index of configuration in the instances collected by ConfigTemplate.nodes
+	final int node;
 
 	@SuppressWarnings("unchecked")
 	public static <C,P> ConfigParameterField<C,P> create(
@@ -33,98 +28,71 @@ final class ConfigParameterField<C,P> implements ConfigParameter<C,P> {
 			String tag,
 			Class<P> converterClass
 	) {
-		if ((field.getModifiers() & Modifier.STATIC) != 0) {
-			// static fields can not be set on instances
-			throw new ConfigException(field.toString() + " must not be static");
-		}
 		if (configuration.getClass() != field.getDeclaringClass()) {
 			throw new ConfigException(field.toString() + " is not declared on " + configuration.getClass());
 		}
-		String description = ConfigSupport.description(field);
-		if (key == null || "".equals(key)) {
-			key = field.getName();
+		// reuse the metadata if the field is a parameter of its class,
+		// an unannotated field must not depend on the other fields of its class
+		FieldTemplate<P> template = null;
+		if (field.isAnnotationPresent(Parameter.class)) {
+			ConfigTemplate declaring = ConfigTemplate.of(field.getDeclaringClass());
+			template = (FieldTemplate<P>) declaring.parameter(field, tag, converterClass);
 		}
-		if (tag == null) {
-			tag = "";
+		if (template == null) {
+			template = FieldTemplate.create(field, key, tag, converterClass);
 		}
-		Converter<P> converter;
-		if (converterClass == null || converterClass == Converters.NullConverter.class) {
-			converter = Converters.converterFor((Class<P>) field.getType());
-		} else {
-			try {
-				converter = (Converter<P>) converterClass.newInstance();
-			} catch (Exception e) {
-				throw new ConfigException(e);
-			}
+		if (key == null || "".equals(key)) {
+			key = field.getName();
 		}
-		String[] enumValues = new String[0];
-		Field[] enumFields = new Field[0];
-		Class c = field.getType();
-		if (c.isEnum()) {
-			try {
-				Field[] fields = c.getDeclaredFields();
-				int i = 0;
-				for (int j = 0; j < fields.length; j++) {
-					if (fields[j].isEnumConstant()) {
-						fields[i] = fields[j];
-						i++;
-					}
-				}
-				enumFields = new Field[i];
-				System.arraycopy(fields, 0, enumFields, 0, enumFields.length);
-				if (enumFields.length > 0 && !enumFields[0].isAccessible()) {
-					// NOTE making the enum constants accessible is not reverted later.
-					AccessibleObject.setAccessible(enumFields, true);
-				}
-				// sort alphabetically by name to enable binarySearch
-				Arrays.sort(enumFields, new Comparator<Field>() {
-					public int compare(Field o1, Field o2) {
-						return o1.getName().compareTo(o2.getName());
-					}
-				});
-				enumValues = new String[enumFields.length];
-				for (int j = 0; j < i; j++) {
-					enumValues[j] = enumFields[j].getName();
-				}
-			} catch (Exception e) {
-				throw new ConfigException("Could not access enum values of " + c, e);
-			}
+		return bind(configuration, key, template, 0);
+	}
+
+	/**
+	 * Creates a parameter for the field described by {@code template} on {@code configuration}.
+	 * The current value of the field is used as the default value.
+	 * @param configuration An instance of the class declaring the field.
+	 * @param key The full key of the parameter.
+	 * @param template The field metadata.
+	 * @param node The index of {@code configuration} in the instances collected by {@link ConfigTemplate#nodes}.
+	 */
+	static <C,P> ConfigParameterField<C,P> bind(C configuration, String key, FieldTemplate<P> template, int node) {
+		String defaultValue = value(template, configuration);
+		return new ConfigParameterField<C,P>(configuration, key, defaultValue, template, node);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <P> String value(FieldTemplate<P> template, Object configuration) {
+		if (template.primitive != null) {
+			return template.primitive.get(template.accessor, configuration);
 		}
-		P value = (P) ConfigSupport.retrieve(field, configuration);
-		String defaultValue = converter.toString(value);
-		return new ConfigParameterField<C,P>(
-				configuration,
-				key,
-				field,
-				defaultValue,
-				tag,
-				description,
-				converter,
-				enumValues,
-				enumFields
-		);
+		return template.converter.toString((P) template.accessor.get(configuration));
 	}
 
 	private ConfigParameterField(
 			C configuration,
 			String key,
-			Field field,
 			String defaultValue,
-			String tag,
-			String description,
-			Converter<P> converter,
-			String[] enumNames,
-			Field[] enumFields
+			FieldTemplate<P> template,
+			int node
 	) {
 		this.configuration = configuration;
 		this.key = key;
 		this.defaultValue = defaultValue;
-		this.tag = tag;
-		this.description = description;
-		this.field = field;
-		this.converter = converter;
-		this.enumNames = enumNames;
-		this.enumFields = enumFields;
+		this.template = template;
+		this.node = node;
+	}
+
+	/**
+	 * Creates the same parameter on another instance of the class declaring the field.
+	 * @param configuration The other instance.
+	 * @return the parameter for {@code configuration}.
+	 */
+	@SuppressWarnings("unchecked")
+	ConfigParameterField<C,P> rebind(Object configuration) {
+		if (configuration.getClass() != template.field.getDeclaringClass()) {
+			throw new ConfigException(template.field.toString() + " is not declared on " + configuration.getClass());
+		}
+		return bind((C) configuration, key, template, node);
 	}
 
 	public String key() {
@@ -136,78 +104,90 @@ final class ConfigParameterField<C,P> implements ConfigParameter<C,P> {
 	}
 
 	public String tag() {
-		return tag;
+		return template.tag;
 	}
 
 	public String description() {
-		return description;
+		return template.description;
 	}
 
-	@SuppressWarnings("unchecked")
 	public String get() {
 		try {
-			return converter.toString((P) field.get(configuration));
+			return value(template, configuration);
 		} catch (IllegalValueException ie) {
 			throw ie;
 		} catch (Exception e) {
-			throw new IllegalValueException("could not get the value of " + field, e);
+			throw new IllegalValueException("could not get the value of " + template.field, e);
 		}
 	}
 
 	public void set(String value) {
 		try {
-			field.set(configuration, (P) converter.fromString(value));
+			if (template.primitive != null) {
+				template.primitive.set(template.accessor, configuration, value);
+			} else {
+				template.accessor.set(configuration, template.converter.fromString(value));
+			}
 		} catch (IllegalValueException ie) {
 			throw ie;
 		} catch (Exception e) {
-			throw new IllegalValueException("could not set the value of " + field, e);
+			throw new IllegalValueException("could not set the value of " + template.field, e);
 		}
 	}
 
+	/**
+	 * Reads the value of the field without converting it.
+	 */
+	Object rawValue() {
+		return template.accessor.get(configuration);
+	}
+
+	/**
+	 * Writes an already converted value to the field.
+	 */
+	void setRaw(Object value) {
+		template.accessor.set(configuration, value);
+	}
+
 	@SuppressWarnings("unchecked")
 	public Class<P> type() {
-		return (Class<P>) field.getType();
+		return (Class<P>) template.field.getType();
+	}
+
+	/**
+	 * Retrieves the class of the converter.
+	 */
+	Class<?> converterType() {
+		return template.converter.getClass();
 	}
 
 	public P fromString(String value) {
-		return converter.fromString(value);
+		return template.converter.fromString(value);
 	}
 
 	public String toString(P value) {
-		return converter.toString(value);
+		return template.converter.toString(value);
 	}
 
 	public String[] options() {
-		return enumNames.clone();
+		return template.options.clone();
 	}
 
 	public String description(String option) {
-		Field field = enumField(option);
-		if (field == null) {
-			return null;
-		}
-		return ConfigSupport.description(field);
-	}
-
-	/**
-	 * Retrieves the enum Field with the specified name.
-	 * If the parameter type is not an enum, {@code null} is returned.
-	 */
-	public Field enumField(String name) {
-		int i = Arrays.binarySearch(enumNames, name);
+		int i = Arrays.binarySearch(template.options, option);
 		if (i < 0) {
 			return null;
 		}
-		return enumFields[i];
+		return template.optionDescriptions[i];
 	}
 
 	@SuppressWarnings("unchecked")
 	public Class<C> outerType() {
-		return (Class<C>) field.getDeclaringClass();
+		return (Class<C>) template.field.getDeclaringClass();
 	}
 
 	public String toString() {
-		return key + " (" + defaultValue + "): " + description;
+		return key + " (" + defaultValue + "): " + template.description;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -221,12 +201,12 @@ final class ConfigParameterField<C,P> implements ConfigParameter<C,P> {
 		ConfigParameterField<C,P> opf = (ConfigParameterField<C,P>) other;
 		return
 				key.equals(opf.key) &&
-				field.equals(opf.field) &&
-				converter.equals(opf.converter)
+				template.field.equals(opf.template.field) &&
+				template.converter.equals(opf.template.converter)
 		;
 	}
 
 	public int hashCode() {
-		return (key.hashCode() ^ ~field.hashCode()) + converter.hashCode();
+		return (key.hashCode() ^ ~template.field.hashCode()) + template.converter.hashCode();
 	}
 }
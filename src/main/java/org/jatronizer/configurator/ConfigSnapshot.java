@@ -0,0 +1,151 @@
+package org.jatronizer.configurator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the values of all parameters of a {@link Configurator} at one point in time.
+ * A snapshot is immutable and can be shared between threads.
+ * Snapshots are created by {@link ConfigManager#snapshot}.
+ */
+public final class ConfigSnapshot {
+
+	/**
+	 * Takes a snapshot of the current values of {@code configurator}.
+	 */
+	static ConfigSnapshot of(Configurator configurator) {
+		if (configurator instanceof InstanceConfigurator) {
+			return ((InstanceConfigurator) configurator).snapshot();
+		}
+		if (configurator instanceof MultiConfigurator) {
+			return ((MultiConfigurator) configurator).snapshot();
+		}
+		String[] keys = configurator.keys();
+		String[] values = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = configurator.value(keys[i]);
+		}
+		return new ConfigSnapshot(keys, new KeyIndex(keys), values);
+	}
+
+	/**
+	 * Retrieves the default values of all parameters of {@code configurator}.
+	 */
+	static ConfigSnapshot defaults(Configurator configurator) {
+		if (configurator instanceof InstanceConfigurator) {
+			return ((InstanceConfigurator) configurator).defaults();
+		}
+		if (configurator instanceof MultiConfigurator) {
+			return ((MultiConfigurator) configurator).defaults();
+		}
+		String[] keys = configurator.keys();
+		String[] values = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			values[i] = configurator.parameter(keys[i]).defaultValue();
+		}
+		return new ConfigSnapshot(keys, new KeyIndex(keys), values);
+	}
+
+	private final String[] keys;
+	private final KeyIndex index;
+	private final String[] values;
+
+	/**
+	 * Creates a snapshot, none of the arrays may be modified later.
+	 * @param keys The keys.
+	 * @param index The index of {@code keys}.
+	 * @param values The values in the same order as the keys.
+	 */
+	ConfigSnapshot(String[] keys, KeyIndex index, String[] values) {
+		this.keys = keys;
+		this.index = index;
+		this.values = values;
+	}
+
+	/**
+	 * Retrieves the keys of all parameters in the snapshot.
+	 * @return the keys.
+	 */
+	public String[] keys() {
+		return keys.clone();
+	}
+
+	/**
+	 * Retrieves the number of parameters in the snapshot.
+	 */
+	int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Retrieves the key at position {@code i}.
+	 */
+	String key(int i) {
+		return keys[i];
+	}
+
+	/**
+	 * Retrieves the value at position {@code i}.
+	 */
+	String valueAt(int i) {
+		return values[i];
+	}
+
+	/**
+	 * Retrieves the value of the parameter with the specified key.
+	 * @param key the key identifying the parameter.
+	 * @return the value or {@code null} if the key is unknown.
+	 */
+	public String value(String key) {
+		int i = index.indexOf(key);
+		if (i < 0) {
+			return null;
+		}
+		return values[i];
+	}
+
+	/**
+	 * Retrieves the entries of {@code other} with values different from the values in this snapshot,
+	 * including those with keys not in this snapshot.
+	 * Snapshots of the same configurator share their keys and are compared in a single pass over the values.
+	 * Setting the result on the configurator of this snapshot restores the values of {@code other}.
+	 * @param other The snapshot compared to this one.
+	 * @return a new map with the changed entries.
+	 */
+	public Map<String, String> diff(ConfigSnapshot other) {
+		HashMap<String, String> changed = new HashMap<String, String>();
+		String[] to = other.values;
+		if (other.keys == keys) {
+			for (int i = 0; i < to.length; i++) {
+				if (!equal(values[i], to[i])) {
+					changed.put(keys[i], to[i]);
+				}
+			}
+			return changed;
+		}
+		for (int i = 0; i < to.length; i++) {
+			String key = other.keys[i];
+			int j = index.indexOf(key);
+			if (j < 0 || !equal(values[j], to[i])) {
+				changed.put(key, to[i]);
+			}
+		}
+		return changed;
+	}
+
+	private static boolean equal(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Retrieves all values by key.
+	 * @return a new map with all keys and values.
+	 */
+	public Map<String, String> toMap() {
+		HashMap<String, String> map = new HashMap<String, String>(keys.length * 2);
+		for (int i = 0; i < keys.length; i++) {
+			map.put(keys[i], values[i]);
+		}
+		return map;
+	}
+}
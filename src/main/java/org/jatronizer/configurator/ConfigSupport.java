@@ -1,7 +1,6 @@
 package org.jatronizer.configurator;
 
 import java.lang.reflect.AnnotatedElement;
-import java.lang.reflect.Field;
 import java.util.*;
 
 final class ConfigSupport {
@@ -9,62 +8,6 @@ final class ConfigSupport {
 	// Static class without instances, constructor is hidden
 	private ConfigSupport() {}
 
-	/**
-	 * Retrieves the value of field from obj, attempts to set field to accessible if it is not.
-	 * @param field
-	 * @param obj
-	 * @return
-	 */
-	static Object retrieve(Field field, Object obj) {
-		try {
-			if (!field.isAccessible()) {
-				// NOTE making field accessible is not reverted later.
-				field.setAccessible(true);
-			}
-			return field.get(obj);
-		} catch (Exception e) {
-			throw new ConfigException(field.toString() + " could not be accessed", e);
-		}
-	}
-
-	private static void addConfig(Collection<ConfigParameter> dest, String keyPrefix, Object conf) {
-		Class cc = conf.getClass();
-		if (keyPrefix == null) {
-			keyPrefix = "";
-		}
-		for (Field f : cc.getDeclaredFields()) {
-			addField(dest, keyPrefix, f, conf);
-		}
-	}
-
-	private static void addField(Collection<ConfigParameter> dest, String keyPrefix, Field f, Object conf) {
-		Parameter p = f.getAnnotation(Parameter.class);
-		if (p == null) {
-			return;
-		}
-
-		if (p.container()) {
-			Object subconf = retrieve(f, conf);
-			if (subconf == null) {
-				throw new ConfigException("configuration field " + f.getName() + keyPrefix + " is null");
-			}
-			addConfig(dest, keyPrefix + p.key(), subconf);
-			return;
-		}
-
-		String key = p.key();
-		if ("".equals(key)) {
-			key = f.getName();
-		}
-		dest.add(ConfigParameterField.create(
-				conf,
-				f,
-				keyPrefix + key,
-				p.tag(),
-				p.converter()
-		));
-	}
-
 	/**
 	 * Fetches all fields annotated with {@link Parameter} from {@code configuration}.
 	 * @param configuration An instance with {@code Parameter} annotated fields, must not be {@code null}.
@@ -73,19 +16,12 @@ final class ConfigSupport {
 	 */
 	public static ConfigParameter[] fetchParameters(Object configuration, String keyPrefix) {
 		Class cc = configuration.getClass();
-		ArrayList<ConfigParameter> params = new ArrayList<ConfigParameter>();
-		addConfig(params, keyPrefix, configuration);
-		if (params.isEmpty()) {
+		ConfigParameter[] parameters = ConfigTemplate.of(cc).bind(configuration, keyPrefix == null ? "" : keyPrefix);
+		if (parameters.length == 0) {
 			throw new ConfigException(
 					"" + cc + " contains no configurations or parameters"
 			);
 		}
-		ConfigParameter[] parameters = params.toArray(new ConfigParameter[params.size()]);
-		Arrays.sort(parameters, new Comparator<ConfigParameter>() {
-			public int compare(ConfigParameter o1, ConfigParameter o2) {
-				return o1.key().compareTo(o2.key());
-			}
-		});
 		return parameters;
 	}
 
@@ -93,25 +29,50 @@ final class ConfigSupport {
 		String from(String key);
 	}
 
+	/**
+	 * Formats keys as command line argument keys and environment variable names.
+	 * Every sequence of uppercase letters is prefixed with the separator, every sequence of chars that are not
+	 * ASCII letters or digits becomes a single separator and the letters are converted to lowercase for arguments
+	 * and to uppercase for environment variables.
+	 */
 	public enum KeyFormat implements KeyFormatter {
 		arg {
 			public String from(String key) {
-				return formatKey(key, "-").replaceAll("--+", "-").toLowerCase();
+				return formatKey(key, '-', false);
 			}
 		},
 		env {
 			public String from(String key) {
-				return formatKey(key, "_").replaceAll("__+", "-").toUpperCase();
+				return formatKey(key, '_', true);
 			}
 		};
 
-		private static String formatKey(String key, String separator) {
-			return key
-					// prefix each sequence of capital letters with separator
-					.replaceAll("([A-Z]+)", separator + "$1")
-					// change all non alphanumeric char sequences to separator
-					.replaceAll("[^A-Za-z0-9]+", separator)
-			;
+		private static String formatKey(String key, char separator, boolean upperCase) {
+			final int len = key.length();
+			// each char adds at most a separator and itself
+			char[] formatted = new char[2 * len];
+			int n = 0;
+			boolean inUpperCase = false;
+			for (int i = 0; i < len; i++) {
+				char c = key.charAt(i);
+				if (c >= 'A' && c <= 'Z') {
+					if (!inUpperCase && (n == 0 || formatted[n - 1] != separator)) {
+						formatted[n++] = separator;
+					}
+					inUpperCase = true;
+					formatted[n++] = upperCase ? c : (char) (c + ('a' - 'A'));
+					continue;
+				}
+				inUpperCase = false;
+				if (c >= 'a' && c <= 'z') {
+					formatted[n++] = upperCase ? (char) (c - ('a' - 'A')) : c;
+				} else if (c >= '0' && c <= '9') {
+					formatted[n++] = c;
+				} else if (n == 0 || formatted[n - 1] != separator) {
+					formatted[n++] = separator;
+				}
+			}
+			return new String(formatted, 0, n);
 		}
 	}
 
@@ -128,6 +89,16 @@ final class ConfigSupport {
 		return d.value();
 	}
 
+	/**
+	 * Retrieves the description of a configuration class from its {@link ConfigDescriptor} or its
+	 * {@link Description} annotation.
+	 * @param type The configuration class.
+	 * @return the description or {@code ""}.
+	 */
+	public static String typeDescription(Class<?> type) {
+		return ConfigTemplate.of(type).description;
+	}
+
 	public static String[] collisions(KeyFormatter format, String[] keys) {
 		HashMap<String, String> map = new HashMap<String, String>(keys.length, 1.0f);
 		ArrayList<String> collisions = new ArrayList<String>();
@@ -146,66 +117,4 @@ final class ConfigSupport {
 		Arrays.sort(result);
 		return result;
 	}
-
-	public static int values(
-			Map<String, String> dest,
-			String[] keys,
-			String keyPrefix,
-			KeyFormatter format,
-			Map<String, String> src) {
-		if (keyPrefix == null) {
-			keyPrefix = "";
-		}
-		int numSet = 0;
-		for (String key : keys) {
-			String mapped = format.from(keyPrefix + key);
-			String value = src.get(mapped);
-			if (value != null) {
-				if (dest != null) {
-					dest.put(key, value);
-				}
-				numSet++;
-			}
-		}
-		return numSet;
-	}
-
-	public static int parseValues(
-			Map<String, String> dest,
-			Collection<String> destUnused,
-			String[] keys,
-			String keyPrefix,
-			KeyFormatter format,
-			String[] src) {
-		if (keyPrefix == null) {
-			keyPrefix = "";
-		}
-		HashMap<String, String> map = new HashMap<String, String>(keys.length, 1.0f);
-		for (String key : keys) {
-			map.put(format.from(keyPrefix + key), key);
-		}
-		int numSet = 0;
-		for (String raw : src) {
-			String[] pair = raw.split("=", 2);
-			final String key = map.get(pair[0]);
-			if (key == null) {
-				if (destUnused != null) {
-					destUnused.add(raw);
-				}
-				continue;
-			}
-			final String value;
-			if (pair.length == 2) {
-				value = pair[1];
-			} else {
-				// handle booleans without requiring "=true"
-				value = "true";
-			}
-			if (dest != null) {
-				dest.put(key, value);
-			}
-			numSet++;
-		}
-		return numSet;
-	}
 }
@@ -0,0 +1,205 @@
+package org.jatronizer.configurator;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Holds the parameters and containers declared by a configuration class.
+ * A template is created once per class and cached, it is built from the generated {@link ConfigDescriptor}
+ * of the class or by reading fields and annotations with reflection if there is none.
+ * Binding a template to an instance only creates the {@link ConfigParameterField}s, the class is not scanned again.
+ */
+final class ConfigTemplate {
+
+	private static final ClassCache<ConfigTemplate> TEMPLATES = ClassCache.create(
+			new ClassCache.Loader<ConfigTemplate>() {
+				public ConfigTemplate load(Class<?> type) {
+					return create(type);
+				}
+			}
+	);
+
+	static final Comparator<ConfigParameter<?, ?>> BY_KEY = new Comparator<ConfigParameter<?, ?>>() {
+		public int compare(ConfigParameter<?, ?> o1, ConfigParameter<?, ?> o2) {
+			return o1.key().compareTo(o2.key());
+		}
+	};
+
+	private static final Comparator<FieldTemplate<?>> TEMPLATE_BY_KEY = new Comparator<FieldTemplate<?>>() {
+		public int compare(FieldTemplate<?> o1, FieldTemplate<?> o2) {
+			return o1.key.compareTo(o2.key);
+		}
+	};
+
+	/**
+	 * Retrieves the cached template of {@code type}.
+	 */
+	static ConfigTemplate of(Class<?> type) {
+		return TEMPLATES.get(type);
+	}
+
+	private static ConfigTemplate create(Class<?> type) {
+		long start = Metrics.start();
+		ArrayList<FieldTemplate<?>> params = new ArrayList<FieldTemplate<?>>();
+		ArrayList<String> containerKeys = new ArrayList<String>();
+		ArrayList<FieldAccessor> containers = new ArrayList<FieldAccessor>();
+		String description;
+		ConfigDescriptor descriptor = ConfigDescriptor.of(type);
+		if (descriptor != null) {
+			description = descriptor.description();
+			ConfigDescriptor.Entry[] entries = descriptor.entries;
+			for (int i = 0; i < entries.length; i++) {
+				if (entries[i].container) {
+					Field f = FieldTemplate.declaredField(type, entries[i].field);
+					containerKeys.add(entries[i].key);
+					containers.add(FieldTemplate.accessor(f, descriptor, i));
+				} else {
+					params.add(FieldTemplate.create(type, descriptor, i));
+				}
+			}
+		} else {
+			description = ConfigSupport.description(type);
+			for (Field f : type.getDeclaredFields()) {
+				Parameter p = f.getAnnotation(Parameter.class);
+				if (p == null) {
+					continue;
+				}
+				if (p.container()) {
+					containerKeys.add(p.key());
+					containers.add(FieldAccessor.of(f));
+				} else {
+					params.add(FieldTemplate.create(f, p.key(), p.tag(), p.converter()));
+				}
+			}
+		}
+		FieldTemplate<?>[] parameters = params.toArray(new FieldTemplate<?>[params.size()]);
+		Arrays.sort(parameters, TEMPLATE_BY_KEY);
+		ConfigTemplate template = new ConfigTemplate(
+				type,
+				description,
+				parameters,
+				containerKeys.toArray(new String[containerKeys.size()]),
+				containers.toArray(new FieldAccessor[containers.size()])
+		);
+		Metrics.end(ConfigMetrics.Operation.scan, parameters.length, start);
+		return template;
+	}
+
+	final Class<?> type;
+	final String description;
+	private final FieldTemplate<?>[] parameters; // ordered by key
+	private final String[] containerKeys;
+	private final FieldAccessor[] containers;
+
+	private ConfigTemplate(
+			Class<?> type,
+			String description,
+			FieldTemplate<?>[] parameters,
+			String[] containerKeys,
+			FieldAccessor[] containers
+	) {
+		this.type = type;
+		this.description = description;
+		this.parameters = parameters;
+		this.containerKeys = containerKeys;
+		this.containers = containers;
+	}
+
+	/**
+	 * Finds the template of {@code field} if it was created with the same tag and converter.
+	 * @return the template or {@code null}.
+	 */
+	FieldTemplate<?> parameter(Field field, String tag, Class<?> converterClass) {
+		if (tag == null) {
+			tag = "";
+		}
+		for (FieldTemplate<?> p : parameters) {
+			if (p.field.equals(field) && p.tag.equals(tag)) {
+				Parameter annotation = field.getAnnotation(Parameter.class);
+				if (annotation != null && custom(annotation.converter()) == custom(converterClass)) {
+					return p;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static Class<?> custom(Class<?> converterClass) {
+		return converterClass == Converters.NullConverter.class ? null : converterClass;
+	}
+
+	/**
+	 * Creates the parameters of {@code configuration} and all configurations in its containers.
+	 * @param configuration An instance of the class of this template.
+	 * @param keyPrefix A prefix for all keys, must not be {@code null}.
+	 * @return The parameters ordered by key.
+	 */
+	ConfigParameter<?, ?>[] bind(Object configuration, String keyPrefix) {
+		ArrayList<ConfigParameter<?, ?>> dest = new ArrayList<ConfigParameter<?, ?>>(parameters.length);
+		collect(dest, new int[1], keyPrefix, configuration);
+		ConfigParameter<?, ?>[] result = dest.toArray(new ConfigParameter<?, ?>[dest.size()]);
+		if (containers.length > 0) {
+			long start = Metrics.start();
+			Arrays.sort(result, BY_KEY);
+			Metrics.end(ConfigMetrics.Operation.sort, result.length, start);
+		}
+		return result;
+	}
+
+	private void collect(List<ConfigParameter<?, ?>> dest, int[] nodes, String keyPrefix, Object configuration) {
+		int node = nodes[0]++;
+		boolean prefixed = keyPrefix.length() > 0;
+		for (FieldTemplate<?> p : parameters) {
+			dest.add(ConfigParameterField.bind(configuration, prefixed ? keyPrefix + p.key : p.key, p, node));
+		}
+		for (int i = 0; i < containers.length; i++) {
+			Object subconf = container(configuration, i, keyPrefix);
+			of(subconf.getClass()).collect(dest, nodes, keyPrefix + containerKeys[i], subconf);
+		}
+	}
+
+	/**
+	 * Collects the parameters of {@code configuration} and all configurations in its containers without binding
+	 * them, in the order used by {@link #bind} before sorting.
+	 * @param keyPrefix A prefix for all keys, must not be {@code null}.
+	 * @param nodes Receives the instances, see {@link #nodes}.
+	 * @param dest Receives the parameters.
+	 */
+	void layout(Object configuration, String keyPrefix, List<Object> nodes, List<LazyParameters.Slot> dest) {
+		int node = nodes.size();
+		nodes.add(configuration);
+		boolean prefixed = keyPrefix.length() > 0;
+		for (FieldTemplate<?> p : parameters) {
+			dest.add(new LazyParameters.Slot(prefixed ? keyPrefix + p.key : p.key, p, node));
+		}
+		for (int i = 0; i < containers.length; i++) {
+			Object subconf = container(configuration, i, keyPrefix);
+			of(subconf.getClass()).layout(subconf, keyPrefix + containerKeys[i], nodes, dest);
+		}
+	}
+
+	private Object container(Object configuration, int index, String keyPrefix) {
+		Object subconf = containers[index].get(configuration);
+		if (subconf == null) {
+			throw new ConfigException("configuration field " + containers[index].field.getName() + keyPrefix + " is null");
+		}
+		return subconf;
+	}
+
+	/**
+	 * Collects {@code configuration} and all configurations in its containers in the order used by {@link #bind}.
+	 * The index of an instance in {@code dest} is the {@code node} of its parameters.
+	 * @param configuration An instance of the class of this template.
+	 * @param dest The list the instances are added to.
+	 */
+	void nodes(Object configuration, List<Object> dest) {
+		dest.add(configuration);
+		for (int i = 0; i < containers.length; i++) {
+			Object subconf = container(configuration, i, "");
+			of(subconf.getClass()).nodes(subconf, dest);
+		}
+	}
+}
@@ -1,6 +1,6 @@
 package org.jatronizer.configurator;
 
-import java.lang.reflect.Method;
+import java.util.Arrays;
 
 final class Converters {
 
@@ -50,11 +50,117 @@ final class Converters {
 		return null;
 	}
 
+	/**
+	 * A converter for a primitive type that reads and writes fields of that type without boxing.
+	 * @param <P> The boxed form of the primitive type.
+	 */
+	abstract static class PrimitiveConverter<P> implements Converter<P> {
+
+		/**
+		 * The primitive type of the fields this converter accesses directly.
+		 */
+		final Class<?> type;
+
+		PrimitiveConverter(Class<?> type) {
+			this.type = type;
+		}
+
+		/**
+		 * Reads a field of {@link #type} from {@code target} and converts it to a String.
+		 */
+		abstract String get(FieldAccessor accessor, Object target);
+
+		/**
+		 * Converts {@code value} and writes it to a field of {@link #type} on {@code target}.
+		 */
+		abstract void set(FieldAccessor accessor, Object target, String value);
+	}
+
+	abstract static class BooleanConverter extends PrimitiveConverter<Boolean> {
+		BooleanConverter() {super(boolean.class);}
+		abstract boolean parseBoolean(String value);
+		abstract String toString(boolean value);
+		public final Boolean fromString(String value) {return parseBoolean(value);}
+		public final String toString(Boolean value) {return toString(value.booleanValue());}
+		final String get(FieldAccessor a, Object target) {return toString(a.getBoolean(target));}
+		final void set(FieldAccessor a, Object target, String value) {a.setBoolean(target, parseBoolean(value));}
+	}
+
+	abstract static class CharConverter extends PrimitiveConverter<Character> {
+		CharConverter() {super(char.class);}
+		abstract char parseChar(String value);
+		abstract String toString(char value);
+		public final Character fromString(String value) {return parseChar(value);}
+		public final String toString(Character value) {return toString(value.charValue());}
+		final String get(FieldAccessor a, Object target) {return toString(a.getChar(target));}
+		final void set(FieldAccessor a, Object target, String value) {a.setChar(target, parseChar(value));}
+	}
+
+	abstract static class ByteConverter extends PrimitiveConverter<Byte> {
+		ByteConverter() {super(byte.class);}
+		abstract byte parseByte(String value);
+		abstract String toString(byte value);
+		public final Byte fromString(String value) {return parseByte(value);}
+		public final String toString(Byte value) {return toString(value.byteValue());}
+		final String get(FieldAccessor a, Object target) {return toString(a.getByte(target));}
+		final void set(FieldAccessor a, Object target, String value) {a.setByte(target, parseByte(value));}
+	}
+
+	abstract static class ShortConverter extends PrimitiveConverter<Short> {
+		ShortConverter() {super(short.class);}
+		abstract short parseShort(String value);
+		abstract String toString(short value);
+		public final Short fromString(String value) {return parseShort(value);}
+		public final String toString(Short value) {return toString(value.shortValue());}
+		final String get(FieldAccessor a, Object target) {return toString(a.getShort(target));}
+		final void set(FieldAccessor a, Object target, String value) {a.setShort(target, parseShort(value));}
+	}
+
+	abstract static class IntConverter extends PrimitiveConverter<Integer> {
+		IntConverter() {super(int.class);}
+		abstract int parseInt(String value);
+		abstract String toString(int value);
+		public final Integer fromString(String value) {return parseInt(value);}
+		public final String toString(Integer value) {return toString(value.intValue());}
+		final String get(FieldAccessor a, Object target) {return toString(a.getInt(target));}
+		final void set(FieldAccessor a, Object target, String value) {a.setInt(target, parseInt(value));}
+	}
+
+	abstract static class LongConverter extends PrimitiveConverter<Long> {
+		LongConverter() {super(long.class);}
+		abstract long parseLong(String value);
+		abstract String toString(long value);
+		public final Long fromString(String value) {return parseLong(value);}
+		public final String toString(Long value) {return toString(value.longValue());}
+		final String get(FieldAccessor a, Object target) {return toString(a.getLong(target));}
+		final void set(FieldAccessor a, Object target, String value) {a.setLong(target, parseLong(value));}
+	}
+
+	abstract static class FloatConverter extends PrimitiveConverter<Float> {
+		FloatConverter() {super(float.class);}
+		abstract float parseFloat(String value);
+		abstract String toString(float value);
+		public final Float fromString(String value) {return parseFloat(value);}
+		public final String toString(Float value) {return toString(value.floatValue());}
+		final String get(FieldAccessor a, Object target) {return toString(a.getFloat(target));}
+		final void set(FieldAccessor a, Object target, String value) {a.setFloat(target, parseFloat(value));}
+	}
+
+	abstract static class DoubleConverter extends PrimitiveConverter<Double> {
+		DoubleConverter() {super(double.class);}
+		abstract double parseDouble(String value);
+		abstract String toString(double value);
+		public final Double fromString(String value) {return parseDouble(value);}
+		public final String toString(Double value) {return toString(value.doubleValue());}
+		final String get(FieldAccessor a, Object target) {return toString(a.getDouble(target));}
+		final void set(FieldAccessor a, Object target, String value) {a.setDouble(target, parseDouble(value));}
+	}
+
 	/**
 	 * Converts between the Strings "true" or "false" and their representations as Boolean.
 	 */
-	public static final Converter<Boolean> BOOLEAN_CONVERTER = new Converter<Boolean>() {
-		public Boolean fromString(String value) {
+	public static final BooleanConverter BOOLEAN_CONVERTER = new BooleanConverter() {
+		boolean parseBoolean(String value) {
 			if ("false".equals(value)) {
 				return false;
 			}
@@ -63,79 +169,79 @@ final class Converters {
 			}
 			throw new IllegalValueException("\"" + value + "\" is not a boolean");
 		}
-		public String toString(Boolean value) {return value.toString();}
+		String toString(boolean value) {return value ? "true" : "false";}
 		public String toString() {return "BooleanConverter";}
 	};
 
 	/**
 	 * Converts between one-char Strings and Character.
 	 */
-	public static final Converter<Character> CHAR_CONVERTER = new Converter<Character>() {
-		public Character fromString(String value) {
+	public static final CharConverter CHAR_CONVERTER = new CharConverter() {
+		char parseChar(String value) {
 			if (value.length() != 1) {
 				throw new RuntimeException("value is not exactly one char long");
 			}
 			return value.charAt(0);
 		}
-		public String toString(Character value) {return Character.toString(value);}
+		String toString(char value) {return String.valueOf(value);}
 		public String toString() {return "CharConverter";}
 	};
 
 	/**
 	 * Converts between a numeric String in decimal notation and Byte.
 	 */
-	public static final Converter<Byte> BYTE_CONVERTER = new Converter<Byte>() {
-		public Byte fromString(String value) {return Byte.valueOf(value);}
-		public String toString(Byte value) {return Byte.toString(value);}
+	public static final ByteConverter BYTE_CONVERTER = new ByteConverter() {
+		byte parseByte(String value) {return Byte.parseByte(value);}
+		String toString(byte value) {return Byte.toString(value);}
 		public String toString() {return "ByteConverter";}
 	};
 
 	/**
 	 * Converts between a numeric String in decimal notation and Short.
 	 */
-	public static final Converter<Short> SHORT_CONVERTER = new Converter<Short>() {
-		public Short fromString(String value) {return Short.valueOf(value);}
-		public String toString(Short value) {return Short.toString(value);}
+	public static final ShortConverter SHORT_CONVERTER = new ShortConverter() {
+		short parseShort(String value) {return Short.parseShort(value);}
+		String toString(short value) {return Short.toString(value);}
 		public String toString() {return "ShortConverter";}
 	};
 
 	/**
 	 * Converts between a numeric String in decimal notation and Integer.
 	 */
-	public static final Converter<Integer> INT_CONVERTER = new Converter<Integer>() {
-		public Integer fromString(String value) {return Integer.valueOf(value);}
-		public String toString(Integer value) {return Integer.toString(value);}
+	public static final IntConverter INT_CONVERTER = new IntConverter() {
+		int parseInt(String value) {return Integer.parseInt(value);}
+		String toString(int value) {return Integer.toString(value);}
 		public String toString() {return "IntConverter";}
 	};
 
 	/**
 	 * Converts between a numeric String in decimal notation and Long.
 	 */
-	public static final Converter<Long> LONG_CONVERTER = new Converter<Long>() {
-		public Long fromString(String value) {return Long.valueOf(value);}
-		public String toString(Long value) {return Long.toString(value);}
+	public static final LongConverter LONG_CONVERTER = new LongConverter() {
+		long parseLong(String value) {return Long.parseLong(value);}
+		String toString(long value) {return Long.toString(value);}
 		public String toString() {return "LongConverter";}
 	};
 
 	/**
 	 * Converts between a numeric String and Float.
-	 * The conversion uses {@code Float.fromString} and {@code Float.toString}, the valid format
+	 * The conversion uses {@code Float.parseFloat} and {@code Float.toString}, the valid format
 	 * is described there.
 	 */
-	public static final Converter<Float> FLOAT_CONVERTER = new Converter<Float>() {
-		public Float fromString(String value) {return Float.valueOf(value);}
-		public String toString(Float value) {return Float.toString(value);}
+	public static final FloatConverter FLOAT_CONVERTER = new FloatConverter() {
+		float parseFloat(String value) {return Float.parseFloat(value);}
+		String toString(float value) {return Float.toString(value);}
 		public String toString() {return "FloatConverter";}
 	};
 
 	/**
 	 * Converts between a numeric String and Double.
-	 * The conversion uses {@code Double.fromString} and {@code Double.toString}, the valid format
+	 * The conversion uses {@code Double.parseDouble} and {@code Double.toString}, the valid format
 	 * is described there.
 	 */
-	public static final Converter<Double> DOUBLE_CONVERTER = new Converter<Double>() {
-		public Double fromString(String value) {return Double.valueOf(value);}
-		public String toString(Double value) {return Double.toString(value);}
+	public static final DoubleConverter DOUBLE_CONVERTER = new DoubleConverter() {
+		double parseDouble(String value) {return Double.parseDouble(value);}
+		String toString(double value) {return Double.toString(value);}
 		public String toString() {return "DoubleConverter";}
 	};
 
@@ -164,75 +270,94 @@ final class Converters {
 
 	/**
 	 * Converts between the names of enum values and their values.
+	 * The names, values and descriptions are read once per enum type, conversions use lookup tables.
 	 * @param <P> enum type.
 	 */
 	public static class EnumConverter<P> implements Converter<P> {
 
+		private static final ClassCache<EnumConverter<?>> CONVERTERS = ClassCache.create(
+				new ClassCache.Loader<EnumConverter<?>>() {
+					@SuppressWarnings("unchecked")
+					public EnumConverter<?> load(Class<?> type) {
+						return new EnumConverter<Object>((Class<Object>) type);
+					}
+				}
+		);
+
 		/**
-		 * Creates a converter for the specified enum type.
-		 * If the enum values are not accessible, {@code create} will call
-		 * {@link java.lang.reflect.Field#setAccessible(boolean);}.
-		 * Throws a {@link ConfigException} if {@code c} is not an enum, the enum values of {@code c} could
-		 * not be accessed and it could not be made accessible.
+		 * Retrieves the converter for the specified enum type.
+		 * Throws a {@link ConfigException} if {@code c} is not an enum or its values could not be accessed.
 		 * @param c Type of the enum.
 		 */
+		@SuppressWarnings("unchecked")
 		public static <P> EnumConverter<P> create(Class<P> c) {
 			if (!c.isEnum()) {
 				throw new ConfigException("Class " + c.getCanonicalName() + " is not an enum");
 			}
-			Method valueOf = null;
-			Method name = null;
-			try {
-				valueOf = c.getMethod("valueOf", String.class);
-				name = c.getMethod("name");
-				if (!valueOf.isAccessible()) {
-					// NOTE making fromString and name accessible is not reverted later.
-					valueOf.setAccessible(true);
-					name.setAccessible(true);
-				}
-			} catch (Exception e) {
-				// famous last words: never going to happen
-				throw new ConfigException("Method name and/or fromString could not be accessed", e);
-			}
-			return new EnumConverter<P>("EnumConverter(" + c.getCanonicalName() +")", valueOf, name);
+			return (EnumConverter<P>) CONVERTERS.get(c);
 		}
 
-		private final String string;
-		private final Method valueOf;
-		private final Method name;
+		private final Class<P> type;
+		// names by ordinal
+		private final String[] names;
+		// names in ascending order and the values and descriptions in the same order
+		final String[] options;
+		private final P[] values;
+		final String[] optionDescriptions;
 
-		private EnumConverter(String string, Method valueOf, Method name) {
-			this.string = string;
-			this.valueOf = valueOf;
-			this.name = name;
+		@SuppressWarnings("unchecked")
+		private EnumConverter(Class<P> type) {
+			P[] constants = type.getEnumConstants();
+			String[] names = new String[constants.length];
+			for (int i = 0; i < constants.length; i++) {
+				names[i] = ((Enum) constants[i]).name();
+			}
+			// sort alphabetically by name to enable binarySearch
+			String[] options = names.clone();
+			Arrays.sort(options);
+			P[] values = constants.clone();
+			for (int i = 0; i < constants.length; i++) {
+				values[Arrays.binarySearch(options, names[i])] = constants[i];
+			}
+			String[] optionDescriptions = new String[options.length];
+			for (int i = 0; i < options.length; i++) {
+				try {
+					optionDescriptions[i] = ConfigSupport.description(type.getDeclaredField(options[i]));
+				} catch (Exception e) {
+					throw new ConfigException("Could not access enum values of " + type, e);
+				}
+			}
+			this.type = type;
+			this.names = names;
+			this.options = options;
+			this.values = values;
+			this.optionDescriptions = optionDescriptions;
 		}
 
-		@SuppressWarnings("unchecked")
 		public P fromString(String value) {
-			try {
-				return (P) valueOf.invoke(null, value);
-			} catch (Exception e) {
-				throw new IllegalValueException("Could not convert from String with " + valueOf.toString(), e);
+			int i = value == null ? -1 : Arrays.binarySearch(options, value);
+			if (i < 0) {
+				throw new IllegalValueException("\"" + value + "\" is no value of " + type.getCanonicalName());
 			}
+			return values[i];
 		}
 
 		public String toString(P value) {
-			try {
-				return (String) name.invoke(value);
-			} catch (Exception e) {
-				throw new IllegalValueException("Could not convert to String with " + name.toString(), e);
+			if (value == null) {
+				throw new IllegalValueException("null is no value of " + type.getCanonicalName());
 			}
+			return names[((Enum) value).ordinal()];
 		}
 
-		public String toString() {return string;}
+		public String toString() {return "EnumConverter(" + type.getCanonicalName() + ")";}
 
 		public boolean equals(Object o) {
 			return this == o ||
-					o != null && o.getClass() == EnumConverter.class && (valueOf.equals(((EnumConverter) o).valueOf));
+					o != null && o.getClass() == EnumConverter.class && type == ((EnumConverter) o).type;
 		}
 
 		public int hashCode() {
-			return valueOf.hashCode() ^ ~name.hashCode();
+			return type.hashCode();
 		}
 	}
 }
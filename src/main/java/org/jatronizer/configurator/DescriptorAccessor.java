@@ -0,0 +1,34 @@
+package org.jatronizer.configurator;
+
+import java.lang.reflect.Field;
+
+/**
+ * Accesses a field through the code generated for its {@link ConfigDescriptor}.
+ */
+final class DescriptorAccessor extends FieldAccessor {
+
+	private final ConfigDescriptor descriptor;
+	private final int index;
+
+	DescriptorAccessor(Field field, ConfigDescriptor descriptor, int index) {
+		super(field);
+		this.descriptor = descriptor;
+		this.index = index;
+	}
+
+	Object get(Object target) {
+		try {
+			return descriptor.get(target, index);
+		} catch (RuntimeException e) {
+			throw getFailed(e);
+		}
+	}
+
+	void set(Object target, Object value) {
+		try {
+			descriptor.set(target, index, value);
+		} catch (RuntimeException e) {
+			throw setFailed(e);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package org.jatronizer.configurator;
+
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes a field on instances of the class declaring it.
+ * An accessor is resolved once per field and then used for every read and write.
+ * The methods for primitive types read and write without boxing; they may only be used if the field has exactly
+ * that type.
+ */
+abstract class FieldAccessor {
+
+	/**
+	 * Creates an accessor for {@code field}.
+	 * The field is made accessible if it is not.
+	 * @param field The field, if it is static the target of all reads and writes is ignored.
+	 * @return An accessor for {@code field}.
+	 */
+	static FieldAccessor of(Field field) {
+		return new ReflectionAccessor(field);
+	}
+
+	protected final Field field;
+
+	protected FieldAccessor(Field field) {
+		try {
+			if (!field.isAccessible()) {
+				// NOTE making field accessible is not reverted later.
+				field.setAccessible(true);
+			}
+		} catch (Exception e) {
+			throw new ConfigException(field.toString() + " could not be accessed", e);
+		}
+		this.field = field;
+	}
+
+	protected IllegalValueException getFailed(Throwable cause) {
+		return new IllegalValueException("could not get the value of " + field, cause);
+	}
+
+	protected IllegalValueException setFailed(Throwable cause) {
+		return new IllegalValueException("could not set the value of " + field, cause);
+	}
+
+	abstract Object get(Object target);
+
+	abstract void set(Object target, Object value);
+
+	boolean getBoolean(Object target) {
+		return (Boolean) get(target);
+	}
+
+	void setBoolean(Object target, boolean value) {
+		set(target, value);
+	}
+
+	char getChar(Object target) {
+		return (Character) get(target);
+	}
+
+	void setChar(Object target, char value) {
+		set(target, value);
+	}
+
+	byte getByte(Object target) {
+		return (Byte) get(target);
+	}
+
+	void setByte(Object target, byte value) {
+		set(target, value);
+	}
+
+	short getShort(Object target) {
+		return (Short) get(target);
+	}
+
+	void setShort(Object target, short value) {
+		set(target, value);
+	}
+
+	int getInt(Object target) {
+		return (Integer) get(target);
+	}
+
+	void setInt(Object target, int value) {
+		set(target, value);
+	}
+
+	long getLong(Object target) {
+		return (Long) get(target);
+	}
+
+	void setLong(Object target, long value) {
+		set(target, value);
+	}
+
+	float getFloat(Object target) {
+		return (Float) get(target);
+	}
+
+	void setFloat(Object target, float value) {
+		set(target, value);
+	}
+
+	double getDouble(Object target) {
+		return (Double) get(target);
+	}
+
+	void setDouble(Object target, double value) {
+		set(target, value);
+	}
+
+	public String toString() {
+		return getClass().getSimpleName() + "(" + field + ")";
+	}
+}
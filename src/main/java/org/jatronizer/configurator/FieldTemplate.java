@@ -0,0 +1,165 @@
+package org.jatronizer.configurator;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Holds everything about a parameter field that does not depend on the configuration instance.
+ * A {@code FieldTemplate} is immutable and shared by all {@link ConfigParameterField}s of the same field.
+ * @param <P> Type of the configuration parameter.
+ */
+final class FieldTemplate<P> {
+
+	final Field field;
+	final String key;
+	final String tag;
+	final String description;
+	final Converter<P> converter;
+	// converter if the field is primitive and can be accessed without boxing, else null
+	final Converters.PrimitiveConverter<P> primitive;
+	final FieldAccessor accessor;
+	final String[] options;
+	final String[] optionDescriptions;
+
+	/**
+	 * Creates a template for {@code field}, the metadata is read from the field and its annotations.
+	 * @param field The parameter field.
+	 * @param key The key of the parameter; the name of the field if {@code null} or empty.
+	 * @param tag An optional tag.
+	 * @param converterClass The converter type, {@code null} or {@link Converters.NullConverter} for the default.
+	 */
+	@SuppressWarnings("unchecked")
+	static <P> FieldTemplate<P> create(Field field, String key, String tag, Class<?> converterClass) {
+		checkStatic(field);
+		String[] options = new String[0];
+		String[] optionDescriptions = new String[0];
+		Class<?> c = field.getType();
+		if (c.isEnum()) {
+			// shared with the default converter of the enum type
+			Converters.EnumConverter<?> enumConverter = Converters.EnumConverter.create(c);
+			options = enumConverter.options;
+			optionDescriptions = enumConverter.optionDescriptions;
+		}
+		return new FieldTemplate<P>(
+				field,
+				key,
+				tag,
+				ConfigSupport.description(field),
+				(Converter<P>) converter(field, converterClass),
+				FieldAccessor.of(field),
+				options,
+				optionDescriptions
+		);
+	}
+
+	/**
+	 * Creates a template for entry {@code index} of a generated descriptor.
+	 */
+	@SuppressWarnings("unchecked")
+	static <P> FieldTemplate<P> create(Class<?> type, ConfigDescriptor descriptor, int index) {
+		ConfigDescriptor.Entry e = descriptor.entries[index];
+		Field field = declaredField(type, e.field);
+		checkStatic(field);
+		Class<?> converterClass = null;
+		if (e.converter != null) {
+			try {
+				converterClass = Class.forName(e.converter, true, type.getClassLoader());
+			} catch (ClassNotFoundException ex) {
+				throw new ConfigException("converter of " + field + " not found", ex);
+			}
+		}
+		Converter<P> converter = (Converter<P>) converter(field, converterClass);
+		return new FieldTemplate<P>(
+				field,
+				e.key,
+				e.tag,
+				e.description,
+				converter,
+				// the generated code boxes primitives
+				primitive(field, converter) == null ? accessor(field, descriptor, index) : FieldAccessor.of(field),
+				e.options,
+				e.optionDescriptions
+		);
+	}
+
+	/**
+	 * Creates an accessor for the field of entry {@code index} of a generated descriptor.
+	 * The generated code is only used if it can read and write the field.
+	 */
+	static FieldAccessor accessor(Field field, ConfigDescriptor descriptor, int index) {
+		ConfigDescriptor.Entry e = descriptor.entries[index];
+		if (e.readable && (e.writable || e.container)) {
+			return new DescriptorAccessor(field, descriptor, index);
+		}
+		return FieldAccessor.of(field);
+	}
+
+	static Field declaredField(Class<?> c, String name) {
+		try {
+			return c.getDeclaredField(name);
+		} catch (NoSuchFieldException e) {
+			throw new ConfigException("descriptor of " + c + " is outdated, it has no field " + name, e);
+		}
+	}
+
+	/**
+	 * Retrieves {@code converter} if it reads and writes {@code field} without boxing.
+	 * @return the converter or {@code null}.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <P> Converters.PrimitiveConverter<P> primitive(Field field, Converter<P> converter) {
+		if (converter instanceof Converters.PrimitiveConverter
+				&& ((Converters.PrimitiveConverter) converter).type == field.getType()) {
+			return (Converters.PrimitiveConverter<P>) converter;
+		}
+		return null;
+	}
+
+	private static void checkStatic(Field field) {
+		if ((field.getModifiers() & Modifier.STATIC) != 0) {
+			// static fields can not be set on instances
+			throw new ConfigException(field.toString() + " must not be static");
+		}
+	}
+
+	/**
+	 * Creates the converter for {@code field}.
+	 * @param converterClass The converter type, {@code null} or {@link Converters.NullConverter} for the default.
+	 */
+	private static Converter<?> converter(Field field, Class<?> converterClass) {
+		long start = Metrics.start();
+		Converter<?> converter;
+		if (converterClass == null || converterClass == Converters.NullConverter.class) {
+			converter = Converters.converterFor(field.getType());
+		} else {
+			try {
+				converter = (Converter<?>) converterClass.newInstance();
+			} catch (Exception e) {
+				throw new ConfigException(e);
+			}
+		}
+		Metrics.end(ConfigMetrics.Operation.converter, 1, start);
+		return converter;
+	}
+
+	private FieldTemplate(
+			Field field,
+			String key,
+			String tag,
+			String description,
+			Converter<P> converter,
+			FieldAccessor accessor,
+			String[] options,
+			String[] optionDescriptions
+	) {
+		this.field = field;
+		this.key = key == null || "".equals(key) ? field.getName() : key;
+		this.tag = tag == null ? "" : tag;
+		this.description = description;
+		this.converter = converter;
+		this.primitive = primitive(field, converter);
+		this.accessor = accessor;
+		this.options = options;
+		this.optionDescriptions = optionDescriptions;
+	}
+}
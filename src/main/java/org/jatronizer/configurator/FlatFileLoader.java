@@ -0,0 +1,165 @@
+package org.jatronizer.configurator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads flat {@code key=value} files for {@link ConfigManager#setFromFile}.
+ * The file is memory-mapped and scanned once. Keys are looked up in the {@link KeyIndex} of the configurator
+ * directly in the mapped bytes, so lines with unknown keys are skipped without creating any objects.
+ * Files larger than the mapping window are mapped in consecutive windows.
+ */
+final class FlatFileLoader {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// the largest region mapped at once
+	static final int WINDOW = 1 << 30;
+
+	private FlatFileLoader() {}
+
+	/**
+	 * Collects the entries of {@code file} with keys in {@code index}.
+	 * @param window The size of the mapped regions, lines must be shorter.
+	 * @return the entries by key.
+	 */
+	static Map<String, String> read(File file, KeyIndex index, int window) throws IOException {
+		HashMap<String, String> entries = new HashMap<String, String>();
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				long length = Math.min(size - position, window);
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				boolean last = position + length == size;
+				int from = position == 0 && hasBom(buffer, (int) length) ? 3 : 0;
+				int consumed = scan(buffer, from, (int) length, last, index, entries);
+				if (consumed == 0) {
+					throw new ConfigException("line at byte " + position + " in " + file + " is too long");
+				}
+				position += consumed;
+			}
+		} finally {
+			raf.close();
+		}
+		return entries;
+	}
+
+	// a leading UTF-8 byte order mark is not part of the first key
+	private static boolean hasBom(ByteBuffer buffer, int limit) {
+		return limit >= 3
+				&& buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF;
+	}
+
+	/**
+	 * Scans the lines in {@code buffer} starting at {@code from};
+	 * the last line is only read if it is terminated or {@code last} is set.
+	 * Each byte of a line with an unknown key is read once.
+	 * @return the number of bytes in the lines that were read, including {@code from}.
+	 */
+	private static int scan(
+			ByteBuffer buffer,
+			int from,
+			int limit,
+			boolean last,
+			KeyIndex index,
+			Map<String, String> dest) {
+		int start = from;
+		byte[] value = new byte[64];
+		while (start < limit) {
+			int p = start;
+			while (p < limit && isBlank(buffer.get(p))) {
+				p++;
+			}
+			int keyStart = p;
+			int keyEnd = p;
+			// String.hashCode of the key without trailing blanks
+			int h = 0;
+			int keyHash = 0;
+			boolean ascii = true;
+			byte b = 0;
+			for (; p < limit; p++) {
+				b = buffer.get(p);
+				if (b == '=' || b == '\n') {
+					break;
+				}
+				h = 31 * h + b;
+				if (!isBlank(b)) {
+					keyEnd = p + 1;
+					keyHash = h;
+					ascii &= b >= 0;
+				}
+			}
+			if (p < limit && b == '=') {
+				p++;
+			}
+			int valueStart = p;
+			while (p < limit && buffer.get(p) != '\n') {
+				p++;
+			}
+			if (p == limit && !last) {
+				break;
+			}
+			int lineEnd = p > start && buffer.get(p - 1) == '\r' ? p - 1 : p;
+			if (keyEnd > lineEnd) {
+				// no separator, the key ends before the line break
+				keyEnd = lineEnd;
+				while (keyEnd > keyStart && isBlank(buffer.get(keyEnd - 1))) {
+					keyEnd--;
+				}
+				keyHash = hash(buffer, keyStart, keyEnd);
+			}
+			if (keyStart < keyEnd && buffer.get(keyStart) != '#' && buffer.get(keyStart) != '!') {
+				int i = ascii
+						? index.indexOf(buffer, keyStart, keyEnd, keyHash)
+						: index.indexOf(decode(buffer, keyStart, keyEnd - keyStart, null));
+				if (i >= 0) {
+					int v = Math.min(skipBlanks(buffer, valueStart, lineEnd), lineEnd);
+					int n = lineEnd - v;
+					if (value.length < n) {
+						value = new byte[Math.max(n, 2 * value.length)];
+					}
+					dest.put(index.key(i), decode(buffer, v, n, value));
+				}
+			}
+			start = p + 1;
+		}
+		return Math.min(start, limit);
+	}
+
+	private static int hash(ByteBuffer buffer, int start, int end) {
+		int h = 0;
+		for (int p = start; p < end; p++) {
+			h = 31 * h + buffer.get(p);
+		}
+		return h;
+	}
+
+	// decodes length bytes at start using tmp if it is large enough
+	private static String decode(ByteBuffer buffer, int start, int length, byte[] tmp) {
+		byte[] bytes = tmp != null && tmp.length >= length ? tmp : new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, 0, length, UTF8);
+	}
+
+	private static boolean isBlank(byte b) {
+		return b == ' ' || b == '\t' || b == '\f';
+	}
+
+	private static int skipBlanks(ByteBuffer buffer, int start, int end) {
+		while (start < end && isBlank(buffer.get(start))) {
+			start++;
+		}
+		return start;
+	}
+}
@@ -2,6 +2,11 @@ package org.jatronizer.configurator;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.Charset;
 
 import static org.jatronizer.configurator.ConfigSupport.KeyFormat.arg;
@@ -10,11 +15,29 @@ import static org.jatronizer.configurator.ConfigSupport.KeyFormat.env;
 /**
  * Provides a default format to display a help text on the command line.
  * An instance can be passed to {@link MultiConfigurator#walk}.
+ * The text of each configuration and parameter is built in a reused buffer, encoded as UTF-8 and written
+ * in blocks; {@link #flush} writes the rest. The parts of a parameter's text that do not depend on its value
+ * are cached in the {@link KeyNames} of its configurator.
  */
 final class HelpPrinter implements ConfigVisitor {
 
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String EMPTY = "                                ";
+
 	private final OutputStream out;
 	private final String envVarPrefix;
+	private final StringBuilder text = new StringBuilder(256);
+	private final CharsetEncoder encoder = UTF8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+	// a copy of text, the encoder is faster for arrays
+	private char[] chars = new char[256];
+	// names of the keys of the visited configurator and the index of the next expected key
+	private KeyNames names;
+	private String[] envNames;
+	private String[] help;
+	private int next;
 
 	/**
 	 * Create a new HelpPrinter printing to {@code out}.
@@ -32,72 +55,137 @@ final class HelpPrinter implements ConfigVisitor {
 		this.envVarPrefix = envVarPrefix;
 	}
 
-	private void forceWrite(String text) {
+	// encodes text like String.getBytes and clears it
+	private void forceWrite() {
+		int length = text.length();
+		if (chars.length < length) {
+			chars = new char[Math.max(length, 2 * chars.length)];
+		}
+		text.getChars(0, length, chars, 0);
+		CharBuffer in = CharBuffer.wrap(chars, 0, length);
+		encoder.reset();
+		while (encoder.encode(in, bytes, true) == CoderResult.OVERFLOW) {
+			drain();
+		}
+		while (encoder.flush(bytes) == CoderResult.OVERFLOW) {
+			drain();
+		}
+		text.setLength(0);
+	}
+
+	private void drain() {
 		try {
-			out.write(text.getBytes(Charset.forName("UTF-8")));
+			out.write(bytes.array(), 0, bytes.position());
 		} catch (IOException e) {
 			throw new ConfigException(e);
 		}
+		bytes.clear();
+	}
+
+	/**
+	 * Writes the buffered text.
+	 */
+	public void flush() {
+		drain();
 	}
 
 	public void visitConfiguration(String name, String tags, String description, Configurator configurator) {
+		names = KeyNames.of(configurator);
+		envNames = names.env(envVarPrefix);
+		help = names.help(envVarPrefix);
+		next = 0;
 		if ("".equals(name)) {
 			return;
 		}
-		String text = "\nParameters for " + name + ":";
+		text.append("\nParameters for ").append(name).append(':');
 		if (!"".equals(description)) {
-			text += " " + description;
+			text.append(' ').append(description);
 		}
-		text += "\n";
-		forceWrite(text);
+		text.append('\n');
+		forceWrite();
 	}
 
 	public void visitParameter(ConfigParameter parameter, String value) {
-		final String EMPTY = "                                ";
 		String key = parameter.key();
-		String text = arg.from(ConfigManager.ARG_PREFIX + key) + ", $" + env.from(envVarPrefix + key) + "\n";
-		String description = parameter.description();
-		if (!"".equals(description)) {
-			text += "\t" + description + "\n";
+		String head;
+		String tail;
+		if (names != null && next < envNames.length && key.equals(names.key(next))) {
+			// parameters are usually visited in the order of the keys
+			int i = next++;
+			head = help[2 * i];
+			tail = help[2 * i + 1];
+			if (head == null) {
+				head = head(parameter, names.arg(i), envNames[i]);
+				tail = tail(parameter);
+				help[2 * i + 1] = tail;
+				help[2 * i] = head;
+			} else if (tail == null) {
+				// set by another thread
+				tail = tail(parameter);
+			}
+		} else {
+			head = head(parameter, arg.from(ConfigManager.ARG_PREFIX + key), env.from(envVarPrefix + key));
+			tail = tail(parameter);
 		}
+		text.append(head);
 		String defaultValue = parameter.defaultValue();
 		if (value == null) {
 			if (defaultValue != null) {
-				text += "\tdefault: \"" + defaultValue + "\"\n";
+				text.append("\tdefault: \"").append(defaultValue).append("\"\n");
 			}
 		} else {
+			text.append("\tvalue: '").append(value);
 			if (defaultValue == null) {
-				text += "\tvalue: '" + value + "'\n";
+				text.append("'\n");
 			} else if (value.equals(defaultValue)) {
-				text += "\tvalue: '" + value + "' (is default)\n";
+				text.append("' (is default)\n");
 			} else {
-				text += "\tvalue: '" + value + "', default: '" + defaultValue + "'\n";
+				text.append("', default: '").append(defaultValue).append("'\n");
 			}
 		}
+		text.append(tail);
+		forceWrite();
+	}
+
+	// the keys and the description
+	private static String head(ConfigParameter<?, ?> parameter, String argName, String envName) {
+		StringBuilder head = new StringBuilder();
+		head.append(argName).append(", $").append(envName).append('\n');
+		String description = parameter.description();
+		if (!"".equals(description)) {
+			head.append('\t').append(description).append('\n');
+		}
+		return head.toString();
+	}
+
+	// the available values
+	private static String tail(ConfigParameter<?, ?> parameter) {
 		String[] options = parameter.options();
-		if (options.length > 0) {
-			text += "\tavailable values:\n";
-			int longest = 0;
-			for (String option : options) {
-				if (option.length() > longest) {
-					longest = option.length();
-				}
+		if (options.length == 0) {
+			return "";
+		}
+		StringBuilder tail = new StringBuilder();
+		tail.append("\tavailable values:\n");
+		int longest = 0;
+		for (String option : options) {
+			if (option.length() > longest) {
+				longest = option.length();
+			}
+		}
+		for (String option : options) {
+			tail.append("\t  ").append(option);
+			String pdesc = parameter.description(option);
+			if (pdesc == null || "".equals(pdesc)) {
+				tail.append('\n');
+				continue;
 			}
-			for (String option : options) {
-				text += "\t  " + option;
-				String pdesc = parameter.description(option);
-				if (pdesc == null || "".equals(pdesc)) {
-					text += "\n";
-					continue;
-				}
-				int paddingNeeded = 2 + longest - option.length();
-				while (paddingNeeded > EMPTY.length()) {
-					text += EMPTY;
-					paddingNeeded -= EMPTY.length();
-				}
-				text += EMPTY.substring(0, paddingNeeded) + pdesc + "\n";
+			int paddingNeeded = 2 + longest - option.length();
+			while (paddingNeeded > EMPTY.length()) {
+				tail.append(EMPTY);
+				paddingNeeded -= EMPTY.length();
 			}
+			tail.append(EMPTY, 0, paddingNeeded).append(pdesc).append('\n');
 		}
-		forceWrite(text);
+		return tail.toString();
 	}
 }
@@ -0,0 +1,148 @@
+package org.jatronizer.configurator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps counts and latency histograms of configuration operations in memory.
+ * The histograms have one bucket per power of two: bucket {@code b} counts durations of at least
+ * {@code 2^(b-1)} and less than {@code 2^b} nanoseconds, bucket {@code 0} those of {@code 0} nanoseconds.
+ * All methods are thread safe and do not lock.
+ */
+public final class InMemoryConfigMetrics implements ConfigMetrics {
+
+	private static final int BUCKETS = 64;
+
+	private static final class Stats {
+		final AtomicLong count = new AtomicLong();
+		final AtomicLong values = new AtomicLong();
+		final AtomicLong failures = new AtomicLong();
+		final AtomicLong nanos = new AtomicLong();
+		final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+	}
+
+	private final Stats[] stats;
+	private final ConcurrentHashMap<String, AtomicLong> failuresByKey = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentHashMap<Class<?>, AtomicLong> failuresByConverter = new ConcurrentHashMap<Class<?>, AtomicLong>();
+	private final ConcurrentHashMap<String, AtomicLong> changesByKey = new ConcurrentHashMap<String, AtomicLong>();
+
+	public InMemoryConfigMetrics() {
+		stats = new Stats[Operation.values().length];
+		for (int i = 0; i < stats.length; i++) {
+			stats[i] = new Stats();
+		}
+	}
+
+	public void record(Operation operation, int values, int failures, long nanos) {
+		Stats s = stats[operation.ordinal()];
+		s.count.incrementAndGet();
+		s.values.addAndGet(values);
+		if (failures != 0) {
+			s.failures.addAndGet(failures);
+		}
+		s.nanos.addAndGet(nanos);
+		s.histogram.incrementAndGet(bucket(nanos));
+	}
+
+	// the bucket of a duration, negative durations of a clock going backwards are counted as 0
+	private static int bucket(long nanos) {
+		return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+
+	public void conversionFailed(String key, Class<?> converter) {
+		increment(failuresByKey, key);
+		increment(failuresByConverter, converter);
+	}
+
+	public void changed(String key, int previousLength, int length, Class<?> converter) {
+		increment(changesByKey, key);
+	}
+
+	private static <K> void increment(ConcurrentHashMap<K, AtomicLong> counts, K key) {
+		AtomicLong count = counts.get(key);
+		if (count == null) {
+			AtomicLong created = new AtomicLong();
+			count = counts.putIfAbsent(key, created);
+			if (count == null) {
+				count = created;
+			}
+		}
+		count.incrementAndGet();
+	}
+
+	/**
+	 * Retrieves the number of recorded operations.
+	 */
+	public long count(Operation operation) {
+		return stats[operation.ordinal()].count.get();
+	}
+
+	/**
+	 * Retrieves the sum of the values of all recorded operations, see {@link Operation}.
+	 */
+	public long values(Operation operation) {
+		return stats[operation.ordinal()].values.get();
+	}
+
+	/**
+	 * Retrieves the number of values or arguments of all recorded operations that could not be set.
+	 */
+	public long failures(Operation operation) {
+		return stats[operation.ordinal()].failures.get();
+	}
+
+	/**
+	 * Retrieves the total duration of all recorded operations in nanoseconds.
+	 */
+	public long nanos(Operation operation) {
+		return stats[operation.ordinal()].nanos.get();
+	}
+
+	/**
+	 * Retrieves a copy of the latency histogram of an operation.
+	 * @return the number of operations by bucket.
+	 */
+	public long[] histogram(Operation operation) {
+		AtomicLongArray h = stats[operation.ordinal()].histogram;
+		long[] copy = new long[h.length()];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = h.get(i);
+		}
+		return copy;
+	}
+
+	/**
+	 * Retrieves the number of values that could not be set by key.
+	 * @return a new map.
+	 */
+	public Map<String, Long> failuresByKey() {
+		return copy(failuresByKey);
+	}
+
+	/**
+	 * Retrieves the number of values that could not be set by converter class.
+	 * @return a new map.
+	 */
+	public Map<Class<?>, Long> failuresByConverter() {
+		return copy(failuresByConverter);
+	}
+
+	/**
+	 * Retrieves the number of changed values by key.
+	 * @return a new map.
+	 */
+	public Map<String, Long> changesByKey() {
+		return copy(changesByKey);
+	}
+
+	private static <K> Map<K, Long> copy(ConcurrentHashMap<K, AtomicLong> counts) {
+		HashMap<K, Long> copy = new HashMap<K, Long>();
+		for (Map.Entry<K, AtomicLong> e : counts.entrySet()) {
+			copy.put(e.getKey(), e.getValue().get());
+		}
+		return copy;
+	}
+}
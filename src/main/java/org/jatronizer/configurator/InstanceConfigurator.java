@@ -1,8 +1,13 @@
 package org.jatronizer.configurator;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Manages the configuration of an application or a subsystem.
@@ -19,6 +24,10 @@ import java.util.Properties;
  * This can be used to e.g. initialize a system with default values, then overwrite those with parameters from
  * a configuration file, then environment variables and last from command line arguments.
  *
+ * The values returned by {@link #value} and passed to visitors in {@link #walk} are rendered once and cached
+ * until they are set through the configurator. Values written to the fields or with {@link ConfigParameter#set}
+ * are not seen until then; {@link #verifying} detects such writes.
+ *
  * @param <C> the type of the configuration instance.
  */
 final class InstanceConfigurator<C> implements Configurator {
@@ -32,15 +41,89 @@ final class InstanceConfigurator<C> implements Configurator {
 	 *               The InstanceConfigurator assumes ownership - you should not write to any of the fields
 	 *               yourself.
 	 *               {@link Description} annotations are processed.
+	 *               If the class of {@code configuration} has a generated {@link ConfigDescriptor}, it is used
+	 *               instead of reading fields and annotations with reflection.
 	 */
-	@SuppressWarnings("unchecked")
 	public static <C> InstanceConfigurator<C> control(C configuration) {
 		return control(
 				configuration,
 				"",
 				"",
-				ConfigSupport.description(configuration.getClass()),
-				ConfigSupport.fetchParameters(configuration, "")
+				"",
+				ConfigSupport.typeDescription(configuration.getClass())
+		);
+	}
+
+	/**
+	 * Creates a configuration manager for all fields annotated with {@link Parameter}.
+	 * The parameters are bound from the cached template of the configuration class,
+	 * the configurator can be rebound to other instances of the same class with {@link #rebind}.
+	 * @param configuration An instance of a configuration.
+	 *               The InstanceConfigurator assumes ownership - you should not write to any of the fields
+	 *               yourself.
+	 * @param name Configuration name.
+	 * @param keyPrefix A common prefix for all keys.
+	 * @param tag An optional tag or space separated list of tags.
+	 * @param description Answer to the question "What is it used for?".
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C> InstanceConfigurator<C> control(
+			C configuration,
+			String name,
+			String keyPrefix,
+			String tag,
+			String description
+	) {
+		ConfigParameter<?, ?>[] params = ConfigSupport.fetchParameters(configuration, keyPrefix);
+		String[] keys = keys(params);
+		return new InstanceConfigurator<C>(
+				configuration,
+				params,
+				keys,
+				new KeyIndex(keys),
+				name,
+				tag,
+				description,
+				ConfigTemplate.of(configuration.getClass()),
+				null
+		);
+	}
+
+	/**
+	 * Creates a configuration manager that binds the parameters of each configuration instance - the
+	 * configuration or one of its containers - the first time one of them is read, set or walked.
+	 * The keys of all parameters are available immediately. The default values are the values of the fields
+	 * at the time they are bound.
+	 * @param configuration An instance of a configuration.
+	 *               The InstanceConfigurator assumes ownership - you should not write to any of the fields
+	 *               yourself.
+	 * @param name Configuration name.
+	 * @param keyPrefix A common prefix for all keys.
+	 * @param tag An optional tag or space separated list of tags.
+	 * @param description Answer to the question "What is it used for?".
+	 */
+	public static <C> InstanceConfigurator<C> controlLazily(
+			C configuration,
+			String name,
+			String keyPrefix,
+			String tag,
+			String description
+	) {
+		ConfigTemplate template = ConfigTemplate.of(configuration.getClass());
+		LazyParameters lazy = LazyParameters.create(template, configuration, keyPrefix == null ? "" : keyPrefix);
+		if (lazy.keys.length == 0) {
+			throw new ConfigException("" + configuration.getClass() + " contains no configurations or parameters");
+		}
+		return new InstanceConfigurator<C>(
+				configuration,
+				lazy.parameters,
+				lazy.keys,
+				new KeyIndex(lazy.keys),
+				name,
+				tag,
+				description,
+				template,
+				lazy
 		);
 	}
 
@@ -61,56 +144,367 @@ final class InstanceConfigurator<C> implements Configurator {
 			String description,
 			ConfigParameter<C,?>[] params
 	) {
-		return new InstanceConfigurator<C>(configuration, params, name, tag, description);
+		String[] keys = keys(params);
+		return new InstanceConfigurator<C>(
+				configuration, params, keys, new KeyIndex(keys), name, tag, description, null, null);
+	}
+
+	private static final AtomicLong IDS = new AtomicLong();
+
+	private static String[] keys(ConfigParameter<?, ?>[] parameters) {
+		String[] keys = new String[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			keys[i] = parameters[i].key();
+		}
+		return keys;
 	}
 
 	private final C config;
 	private final String[] keys;
+	private final KeyIndex index;
+	// filled on demand if lazy is not null
 	private final ConfigParameter[] parameters;
+	// binds parameters on first use, null if they are bound when the configurator is created
+	private final LazyParameters lazy;
 	private final String name;
 	private final String tag;
 	private final String description;
+	// null if the parameters were passed explicitly
+	private final ConfigTemplate template;
+	// created on first use
+	private volatile KeyNames names;
+	// guards the values of the parameters, staged batches lock configurators in the order of their ids
+	final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	final long id = IDS.incrementAndGet();
+	// values by key index in concurrent mode, else null; replaced but never modified
+	private volatile String[] snapshot;
+	// rendered values by key index when not in concurrent mode: a String, NULL or a marker if it is not rendered
+	// yet. Readers do not lock, they only store a value if the marker they read was not replaced by a writer.
+	private final AtomicReferenceArray<Object> rendered;
+	// compare cached values with the fields on each read
+	private volatile boolean verify;
+	// replaced but never modified
+	private volatile Subscription[] subscriptions = Subscription.NONE;
 
 	private InstanceConfigurator(
 			C config,
 			ConfigParameter[] parameters,
+			String[] keys,
+			KeyIndex index,
 			String name,
 			String tag,
-			String desc
+			String desc,
+			ConfigTemplate template,
+			LazyParameters lazy
 	) {
 		this.config = config;
-		String[] keys = new String[parameters.length];
-		for (int i = 0; i < parameters.length; i++) {
-			keys[i] = parameters[i].key();
-		}
 		this.parameters = parameters;
 		this.keys = keys;
+		this.index = index;
 		this.tag = tag == null ? "" : tag;
 		this.description = desc == null ? "" : desc;
 		this.name = name == null || "".equals(name)
 				? config.getClass().getSimpleName()
 				: name;
+		this.template = template;
+		this.lazy = lazy;
+		this.rendered = new AtomicReferenceArray<Object>(parameters.length);
+	}
+
+	/**
+	 * Creates a configurator with the same parameters for another instance of the configuration class.
+	 * Keys and metadata are shared with this configurator, the values of {@code configuration} are the defaults.
+	 * Listeners of this configurator are also notified of changes in the new one, the new configurator is
+	 * passed to them.
+	 * @param configuration An instance of the same class as the managed configuration.
+	 * @return the configurator for {@code configuration}, {@code this} if it is the managed configuration.
+	 */
+	public InstanceConfigurator<C> rebind(C configuration) {
+		if (configuration == null) {
+			throw new NullPointerException("configuration is null");
+		}
+		if (template == null) {
+			throw new ConfigException("configurator " + name + " has explicit parameters and can not be rebound");
+		}
+		if (configuration.getClass() != template.type) {
+			throw new ConfigException("" + configuration.getClass() + " is not " + template.type);
+		}
+		if (configuration == config) {
+			// a second configurator for the same fields would have its own lock and cache
+			return this;
+		}
+		ArrayList<Object> nodes = new ArrayList<Object>();
+		template.nodes(configuration, nodes);
+		if (lazy != null) {
+			LazyParameters rebound = lazy.rebind(template, configuration);
+			InstanceConfigurator<C> c = new InstanceConfigurator<C>(
+					configuration, rebound.parameters, keys, index, name, tag, description, template, rebound);
+			c.rebound(this);
+			return c;
+		}
+		ConfigParameter<?, ?>[] params = new ConfigParameter<?, ?>[parameters.length];
+		for (int i = 0; i < params.length; i++) {
+			ConfigParameterField<?, ?> p = (ConfigParameterField<?, ?>) parameters[i];
+			params[i] = p.rebind(nodes.get(p.node));
+		}
+		InstanceConfigurator<C> rebound = new InstanceConfigurator<C>(
+				configuration, params, keys, index, name, tag, description, template, null);
+		rebound.rebound(this);
+		return rebound;
+	}
+
+	// takes over the modes and listeners of the configurator this one was rebound from
+	private void rebound(InstanceConfigurator<C> from) {
+		names = from.names;
+		verify = from.verify;
+		if (from.snapshot != null) {
+			snapshot = currentValues();
+		}
+		Subscription[] observed = from.subscriptions;
+		Subscription[] copies = new Subscription[observed.length];
+		for (int i = 0; i < copies.length; i++) {
+			copies[i] = observed[i].to(this);
+		}
+		subscriptions = copies.length == 0 ? Subscription.NONE : copies;
+	}
+
+	/**
+	 * Switches this configurator to concurrent mode, where the current values are kept in an immutable snapshot.
+	 * Readers of {@link #value}, {@link #walk} and {@link ConfigManager#snapshot} use the latest published
+	 * snapshot without locking. Writers set the fields and publish a new snapshot with all changes at once.
+	 * Listeners stay subscribed.
+	 * @return {@code this}.
+	 */
+	public InstanceConfigurator<C> concurrent() {
+		if (snapshot != null) {
+			return this;
+		}
+		Lock write = lock.writeLock();
+		write.lock();
+		try {
+			if (snapshot == null) {
+				snapshot = currentValues();
+			}
+		} finally {
+			write.unlock();
+		}
+		return this;
+	}
+
+	/**
+	 * Switches this configurator to verification mode, where cached values are checked on each read.
+	 * Values are rendered once and cached until they are set through a configurator. In verification mode,
+	 * each read of a cached value renders the field again and fails if it was changed directly.
+	 * This is meant for tests, reads are slower than without caching.
+	 * @return {@code this}.
+	 */
+	public InstanceConfigurator<C> verifying() {
+		verify = true;
+		return this;
+	}
+
+	// the cached rendered value null
+	private static final Object NULL = new Object();
+
+	// renders the value of parameter i or retrieves it from the cache
+	@SuppressWarnings("unchecked")
+	private String rendered(int i) {
+		Object cached = rendered.get(i);
+		if (cached instanceof String || cached == NULL) {
+			String value = cached == NULL ? null : (String) cached;
+			if (verify) {
+				verify(i, null, cached);
+			}
+			return value;
+		}
+		String value = parameter(i).get();
+		// fails if a writer invalidated the value while it was rendered
+		rendered.compareAndSet(i, cached, value == null ? NULL : value);
+		return value;
+	}
+
+	// fails if the field of parameter i does not have the value read from published or, if it is null,
+	// from the cache entry; the read lock keeps a concurrent set from being taken for a direct change
+	@SuppressWarnings("unchecked")
+	private void verify(int i, String[] published, Object entry) {
+		Lock read = lock.readLock();
+		read.lock();
+		try {
+			if (published != null ? snapshot != published : rendered.get(i) != entry) {
+				// set through a configurator since it was read
+				return;
+			}
+			String cached = published != null ? published[i] : entry == NULL ? null : (String) entry;
+			String current = parameter(i).get();
+			if (cached == null ? current != null : !cached.equals(current)) {
+				throw new ConfigException("parameter " + keys[i] + " is " + current
+						+ " but was set to " + cached + " through its configurator");
+			}
+		} finally {
+			read.unlock();
+		}
+	}
+
+	/**
+	 * Drops the cached value of the parameter at index {@code i}, must be called with the write lock held
+	 * after the parameter was set.
+	 */
+	void invalidate(int i) {
+		// a new marker, so readers that rendered the previous value do not store it
+		rendered.set(i, new Object());
+	}
+
+	private String[] currentValues() {
+		return currentValues(null);
+	}
+
+	// retrieves the values of the parameters at positions or of all parameters if positions is null;
+	// consistent with batches set under the write lock
+	private String[] currentValues(int[] positions) {
+		Lock read = lock.readLock();
+		read.lock();
+		try {
+			return readValues(positions);
+		} finally {
+			read.unlock();
+		}
+	}
+
+	// like currentValues, but without locking; in default mode, a batch may be seen partially
+	private String[] readValues(int[] positions) {
+		String[] values = new String[positions == null ? parameters.length : positions.length];
+		String[] published = snapshot;
+		for (int j = 0; j < values.length; j++) {
+			int i = positions == null ? j : positions[j];
+			if (published == null) {
+				values[j] = rendered(i);
+			} else {
+				if (verify) {
+					verify(i, published, null);
+				}
+				values[j] = published[i];
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Retrieves the values by key index; the result must not be modified.
+	 * In concurrent mode, this is the published snapshot.
+	 */
+	String[] values() {
+		String[] values = snapshot;
+		return values == null ? currentValues() : values;
+	}
+
+	/**
+	 * Takes a snapshot of the current values.
+	 */
+	ConfigSnapshot snapshot() {
+		return new ConfigSnapshot(keys, index, values());
+	}
+
+	/**
+	 * Retrieves the default values, binds all parameters if they are bound lazily.
+	 */
+	@SuppressWarnings("unchecked")
+	ConfigSnapshot defaults() {
+		String[] values = new String[parameters.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = parameter(i).defaultValue();
+		}
+		return new ConfigSnapshot(keys, index, values);
+	}
+
+	/**
+	 * Retrieves a copy of the snapshot to be changed and published with {@link #publish},
+	 * must be called with the write lock held.
+	 * @return the copy or {@code null} if the configurator is not in concurrent mode.
+	 */
+	String[] copySnapshot() {
+		String[] values = snapshot;
+		return values == null ? null : values.clone();
+	}
+
+	/**
+	 * Publishes the snapshot copied with {@link #copySnapshot}, must be called with the write lock held.
+	 */
+	void publish(String[] values) {
+		snapshot = values;
+	}
+
+	synchronized void subscribe(Subscription s) {
+		subscriptions = Subscription.with(subscriptions, s);
+	}
+
+	synchronized void unsubscribe(ConfigListener listener) {
+		subscriptions = Subscription.without(subscriptions, listener);
+	}
+
+	/**
+	 * Records a change of the parameter at index {@code i} for all subscriptions,
+	 * must be called with the write lock held.
+	 * @param touched Receives the subscriptions to flush when the write lock was released.
+	 */
+	void changed(int i, Collection<Subscription> touched) {
+		Subscription.offer(subscriptions, keys[i], touched);
+	}
+
+	/**
+	 * Reports whether there are any subscriptions.
+	 */
+	boolean observed() {
+		return subscriptions.length > 0;
+	}
+
+	/**
+	 * Reports the number of parameters that are bound.
+	 */
+	int bound() {
+		return lazy == null ? parameters.length : lazy.bound();
+	}
+
+	/**
+	 * Retrieves the index of {@code key} as used in {@link #values}.
+	 * @return the index or {@code -1}.
+	 */
+	int indexOf(String key) {
+		return index.indexOf(key);
+	}
+
+	// retrieves the parameter at index i, binds it if necessary
+	private ConfigParameter<?, ?> parameter(int i) {
+		ConfigParameter<?, ?> p = parameters[i];
+		return p != null ? p : lazy.bind(i);
 	}
 
 	@SuppressWarnings("unchecked")
 	private ConfigParameter field(String key) {
-		int i = Arrays.binarySearch(keys, key);
+		int i = index.indexOf(key);
 		if (i < 0) {
 			return null;
 		}
-		return parameters[i];
+		return parameter(i);
+	}
+
+	KeyIndex index() {
+		return index;
+	}
+
+	KeyNames names() {
+		KeyNames n = names;
+		if (n == null) {
+			names = n = new KeyNames(keys);
+		}
+		return n;
 	}
 
 	public boolean hasKey(String key) {
-		return Arrays.binarySearch(keys, key) > 0;
+		return index.indexOf(key) >= 0;
 	}
 
 	public String[] keys() {
-		String[] keys = new String[parameters.length];
-		for (int i = 0; i < parameters.length; i++) {
-			keys[i] = parameters[i].key();
-		}
-		return keys;
+		return keys.clone();
 	}
 
 	public ConfigParameter parameter(String key) {
@@ -119,55 +513,180 @@ final class InstanceConfigurator<C> implements Configurator {
 
 	@SuppressWarnings("unchecked")
 	public String value(String key) {
-		ConfigParameter p = field(key);
-		if (p == null) {
+		int i = index.indexOf(key);
+		if (i < 0) {
 			return null;
 		}
-		return p.get();
+		String[] values = snapshot;
+		if (values == null) {
+			return rendered(i);
+		}
+		if (verify) {
+			verify(i, values, null);
+		}
+		return values[i];
 	}
 
-	@SuppressWarnings("unchecked")
 	public int set(String key, String value) {
-		ConfigParameter p = field(key);
-		if (p == null) {
+		long start = Metrics.start();
+		int set = setValue(key, value);
+		Metrics.end(ConfigMetrics.Operation.set, 1, 1 - set, start);
+		return set;
+	}
+
+	private int setValue(String key, String value) {
+		int i = index.indexOf(key);
+		if (i < 0) {
 			return 0;
 		}
+		Collection<Subscription> touched = observed() ? Subscription.touched() : null;
+		Lock write = lock.writeLock();
+		write.lock();
+		try {
+			String[] values = copySnapshot();
+			if (!set(i, value, values, touched)) {
+				return 0;
+			}
+			if (values != null) {
+				publish(values);
+			}
+		} finally {
+			write.unlock();
+		}
+		if (touched != null) {
+			Subscription.flush(touched);
+		}
+		return 1;
+	}
+
+	// sets the parameter at index i and records its new value in values if it is not null
+	// and the change in touched if it is not null
+	private boolean set(int i, String value, String[] values, Collection<Subscription> touched) {
+		ConfigParameter<?, ?> p = parameter(i);
 		try {
+			boolean measured = Metrics.measuresChanges();
+			String previous = touched == null && !measured ? null : values != null ? values[i] : rendered(i);
 			p.set(value);
-			return 1;
+			if (values == null && touched == null && !measured) {
+				invalidate(i);
+			} else {
+				String current = p.get();
+				if (values != null) {
+					values[i] = current;
+					invalidate(i);
+				} else {
+					rendered.set(i, current == null ? NULL : current);
+				}
+				if (touched != null && !(current == null ? previous == null : current.equals(previous))) {
+					changed(i, touched);
+				}
+				if (measured) {
+					Metrics.changed(p, previous, current);
+				}
+			}
+			return true;
 		} catch (Exception e) {
 			// probably a conversion error
-			return 0;
+			Metrics.failed(p);
+			return false;
 		}
 	}
 
 	public Map<String, String> set(Map<String, String> configuration) {
-		ErrorMap invalid = ErrorMap.EMPTY;
-		for (Map.Entry<String, String> e : configuration.entrySet()) {
-			if (set(e.getKey(), e.getValue()) == 0) {
-				invalid = invalid.fput(e.getKey(), e.getValue());
-			}
-		}
+		long start = Metrics.start();
+		Map<String, String> invalid = set(configuration, null);
+		Metrics.end(ConfigMetrics.Operation.set, configuration.size(), invalid.size(), start);
 		return invalid;
 	}
 
 	public Map<String, String> set(Properties configuration) {
+		long start = Metrics.start();
+		Map<String, String> invalid = set(configuration, null);
+		Metrics.end(ConfigMetrics.Operation.set, configuration.size(), invalid.size(), start);
+		return invalid;
+	}
+
+	/**
+	 * Sets all entries of {@code configuration} while the write lock is held.
+	 * Snapshots and reads in concurrent mode see all or none of the valid values, other reads do not lock and
+	 * may see some of them.
+	 * @param touched Receives the subscriptions with changes, they are flushed immediately if it is {@code null}.
+	 * @return the invalid entries.
+	 */
+	Map<String, String> set(Map<?, ?> configuration, Collection<Subscription> touched) {
+		Collection<Subscription> pending = !observed() ? null : touched == null ? Subscription.touched() : touched;
 		ErrorMap invalid = ErrorMap.EMPTY;
-		for (Map.Entry<Object, Object> e : configuration.entrySet()) {
-			String key = (String) e.getKey();
-			String value = (String) e.getValue();
-			if (set(key, value) == 0) {
-				invalid = invalid.fput(key, value);
+		Lock write = lock.writeLock();
+		write.lock();
+		try {
+			String[] values = copySnapshot();
+			for (Map.Entry<?, ?> e : configuration.entrySet()) {
+				String key = (String) e.getKey();
+				String value = (String) e.getValue();
+				int i = index.indexOf(key);
+				if (i < 0 || !set(i, value, values, pending)) {
+					invalid = invalid.fput(key, value);
+				}
 			}
+			if (values != null) {
+				publish(values);
+			}
+		} finally {
+			write.unlock();
+		}
+		if (touched == null && pending != null) {
+			Subscription.flush(pending);
 		}
 		return invalid;
 	}
 
+	/**
+	 * Converts {@code value} for the parameter with {@code key} and adds it to {@code batch}.
+	 */
+	void stage(String key, String value, StagedBatch batch) {
+		int i = index.indexOf(key);
+		batch.add(this, i, i < 0 ? null : parameter(i), key, value);
+	}
+
 	@SuppressWarnings("unchecked")
 	public void walk(ConfigVisitor v) {
+		long start = Metrics.start();
+		String[] values = snapshot;
+		if (values == null || verify) {
+			values = readValues(null);
+		}
+		v.visitConfiguration(name, tag, description, this);
+		for (int i = 0; i < parameters.length; i++) {
+			v.visitParameter(parameter(i), values[i]);
+		}
+		Metrics.end(ConfigMetrics.Operation.walk, parameters.length, start);
+	}
+
+	/**
+	 * Visits the parameters with ranks {@code from} to {@code to - 1} in key order, see {@link KeyIndex#position}.
+	 * Only the values of these parameters are read.
+	 */
+	@SuppressWarnings("unchecked")
+	void walk(ConfigVisitor v, int from, int to) {
+		long start = Metrics.start();
+		int[] positions = new int[to - from];
+		for (int r = from; r < to; r++) {
+			positions[r - from] = index.position(r);
+		}
+		String[] published = snapshot;
+		String[] values;
+		if (published == null || verify) {
+			values = readValues(positions);
+		} else {
+			values = new String[positions.length];
+			for (int j = 0; j < values.length; j++) {
+				values[j] = published[positions[j]];
+			}
+		}
 		v.visitConfiguration(name, tag, description, this);
-		for (ConfigParameter field : parameters) {
-			v.visitParameter(field, field.get());
+		for (int j = 0; j < positions.length; j++) {
+			v.visitParameter(parameter(positions[j]), values[j]);
 		}
+		Metrics.end(ConfigMetrics.Operation.walk, positions.length, start);
 	}
 }
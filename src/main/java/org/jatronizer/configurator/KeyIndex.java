@@ -0,0 +1,243 @@
+package org.jatronizer.configurator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Maps keys to their position in an array of keys.
+ * The index is an open addressing hash table with linear probing built once, it stores the key hashes
+ * so most failed probes are rejected without comparing strings.
+ */
+final class KeyIndex {
+
+	/**
+	 * Retrieves the index of all keys in {@code configurator}.
+	 * It is shared by the configurators in this package and created on each call for all others.
+	 */
+	static KeyIndex of(Configurator configurator) {
+		if (configurator instanceof InstanceConfigurator) {
+			return ((InstanceConfigurator) configurator).index();
+		}
+		if (configurator instanceof MultiConfigurator) {
+			return ((MultiConfigurator) configurator).index();
+		}
+		return new KeyIndex(configurator.keys());
+	}
+
+	private final String[] keys;
+	// position of the key + 1, 0 for empty slots
+	private final int[] slots;
+	// hash of the key in the slot
+	private final int[] hashes;
+	private final int mask;
+	// positions of the keys in key order, created on first use; SORTED if the keys are in order
+	private volatile int[] order;
+
+	private static final int[] SORTED = new int[0];
+
+	/**
+	 * Creates the index for {@code keys}.
+	 * @param keys The keys, they must be unique and the array must not be modified later.
+	 */
+	KeyIndex(String[] keys) {
+		int capacity = 2;
+		// keep the load factor at or below 0.5
+		while (capacity < 2 * keys.length) {
+			capacity <<= 1;
+		}
+		int mask = capacity - 1;
+		int[] slots = new int[capacity];
+		int[] hashes = new int[capacity];
+		for (int i = 0; i < keys.length; i++) {
+			int h = hash(keys[i]);
+			int slot = h & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = i + 1;
+			hashes[slot] = h;
+		}
+		this.keys = keys;
+		this.slots = slots;
+		this.hashes = hashes;
+		this.mask = mask;
+	}
+
+	/**
+	 * Retrieves the key at position {@code i}.
+	 */
+	String key(int i) {
+		return keys[i];
+	}
+
+	private static int hash(String key) {
+		int h = key.hashCode();
+		// spread the high bits, similar keys often only differ in their last chars
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Retrieves the position of {@code key}.
+	 * @return the position or {@code -1} if there is no such key.
+	 */
+	int indexOf(String key) {
+		if (key == null) {
+			return -1;
+		}
+		int h = hash(key);
+		for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+			int i = slots[slot] - 1;
+			if (i < 0) {
+				return -1;
+			}
+			if (hashes[slot] == h && keys[i].equals(key)) {
+				return i;
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the position of the key {@code s.substring(start, end)} without creating it.
+	 * @return the position or {@code -1} if there is no such key.
+	 */
+	int indexOf(String s, int start, int end) {
+		int hashCode = 0;
+		for (int p = start; p < end; p++) {
+			hashCode = 31 * hashCode + s.charAt(p);
+		}
+		// same as hash(String)
+		int h = hashCode ^ (hashCode >>> 16);
+		int length = end - start;
+		for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+			int i = slots[slot] - 1;
+			if (i < 0) {
+				return -1;
+			}
+			String key = keys[i];
+			if (hashes[slot] == h && key.length() == length && key.regionMatches(0, s, start, length)) {
+				return i;
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the position of the key stored as ASCII in {@code buffer} between {@code start} and {@code end}
+	 * without creating a {@code String}.
+	 * @param hashCode The {@link String#hashCode} of the key.
+	 * @return the position or {@code -1} if there is no such key.
+	 */
+	int indexOf(ByteBuffer buffer, int start, int end, int hashCode) {
+		// same as hash(String)
+		int h = hashCode ^ (hashCode >>> 16);
+		int length = end - start;
+		for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+			int i = slots[slot] - 1;
+			if (i < 0) {
+				return -1;
+			}
+			if (hashes[slot] == h && equals(keys[i], buffer, start, length)) {
+				return i;
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the number of keys.
+	 */
+	int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Retrieves the position of the key with {@code rank} in key order.
+	 */
+	int position(int rank) {
+		int[] o = order();
+		return o == SORTED ? rank : o[rank];
+	}
+
+	/**
+	 * Retrieves the rank of the first key starting with {@code prefix}, see {@link #position}.
+	 * Keys with the same prefix have consecutive ranks.
+	 * @return the rank, the rank of the next greater key if no key starts with {@code prefix}.
+	 */
+	int first(String prefix) {
+		int lo = 0;
+		int hi = keys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (keys[position(mid)].compareTo(prefix) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Retrieves the rank after the last key starting with {@code prefix}.
+	 * @param first The rank of the first key starting with {@code prefix}, see {@link #first}.
+	 */
+	int end(String prefix, int first) {
+		int lo = first;
+		int hi = keys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (keys[position(mid)].startsWith(prefix)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private int[] order() {
+		int[] o = order;
+		if (o == null) {
+			long start = Metrics.start();
+			order = o = sort(keys);
+			Metrics.end(ConfigMetrics.Operation.sort, keys.length, start);
+		}
+		return o;
+	}
+
+	// retrieves the positions of keys in key order, SORTED if they are in order
+	private static int[] sort(final String[] keys) {
+		int i = 1;
+		while (i < keys.length && keys[i - 1].compareTo(keys[i]) < 0) {
+			i++;
+		}
+		if (i >= keys.length) {
+			return SORTED;
+		}
+		Integer[] positions = new Integer[keys.length];
+		for (i = 0; i < positions.length; i++) {
+			positions[i] = i;
+		}
+		Arrays.sort(positions, new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				return keys[o1].compareTo(keys[o2]);
+			}
+		});
+		int[] order = new int[positions.length];
+		for (i = 0; i < order.length; i++) {
+			order[i] = positions[i];
+		}
+		return order;
+	}
+
+	private static boolean equals(String key, ByteBuffer buffer, int start, int length) {
+		if (key.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (key.charAt(i) != buffer.get(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,220 @@
+package org.jatronizer.configurator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.jatronizer.configurator.ConfigSupport.KeyFormat.arg;
+import static org.jatronizer.configurator.ConfigSupport.KeyFormat.env;
+
+/**
+ * Holds the command line argument keys and environment variable names of a set of keys.
+ * The names and their collisions are formatted once when they are first needed,
+ * configurators keep their {@code KeyNames} so repeated lookups do not format the keys again.
+ */
+final class KeyNames {
+
+	/**
+	 * Retrieves the names of all keys in {@code configurator}.
+	 * They are cached by the configurators in this package and created on each call for all others.
+	 */
+	static KeyNames of(Configurator configurator) {
+		if (configurator instanceof InstanceConfigurator) {
+			return ((InstanceConfigurator) configurator).names();
+		}
+		if (configurator instanceof MultiConfigurator) {
+			return ((MultiConfigurator) configurator).names();
+		}
+		return new KeyNames(configurator.keys());
+	}
+
+	private static final class Args {
+		final String[] names;
+		// key index by name
+		final KeyIndex index;
+		final String[] collisions;
+
+		Args(String[] keys) {
+			String[] names = new String[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				names[i] = arg.from(ConfigManager.ARG_PREFIX + keys[i]);
+			}
+			this.names = names;
+			this.collisions = ConfigSupport.collisions(arg, keys);
+			// colliding names are rejected before the index is used
+			this.index = new KeyIndex(names);
+		}
+	}
+
+	private static final class Env {
+		final String prefix;
+		final String[] names;
+		// help text portions by key index, filled by HelpPrinter
+		final String[] help;
+		// key index by name, created on first use
+		private volatile KeyIndex index;
+
+		Env(String prefix, String[] keys) {
+			String[] names = new String[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				names[i] = env.from(prefix + keys[i]);
+			}
+			this.prefix = prefix;
+			this.names = names;
+			this.help = new String[2 * keys.length];
+		}
+
+		KeyIndex index() {
+			KeyIndex i = index;
+			if (i == null) {
+				index = i = new KeyIndex(names);
+			}
+			return i;
+		}
+	}
+
+	private final String[] keys;
+	private volatile Args args;
+	private volatile String[] envCollisions;
+	// names for the last used prefix
+	private volatile Env lastEnv;
+
+	/**
+	 * Creates the names for {@code keys}.
+	 * @param keys The keys, the array must not be modified later.
+	 */
+	KeyNames(String[] keys) {
+		this.keys = keys;
+	}
+
+	private Args args() {
+		Args a = args;
+		if (a == null) {
+			args = a = new Args(keys);
+		}
+		return a;
+	}
+
+	/**
+	 * Retrieves the key at index {@code i}.
+	 */
+	String key(int i) {
+		return keys[i];
+	}
+
+	/**
+	 * Retrieves the command line argument key of the key at index {@code i}.
+	 */
+	String arg(int i) {
+		return args().names[i];
+	}
+
+	/**
+	 * Retrieves the environment variable names of all keys in the same order as the keys.
+	 * @param envPrefix The common prefix for environment variables, must not be {@code null}.
+	 */
+	String[] env(String envPrefix) {
+		return envFor(envPrefix).names;
+	}
+
+	/**
+	 * Retrieves the cache for the parts of the help text that do not depend on the current value.
+	 * For the key at index {@code i}, {@code 2 * i} holds the text before the value and {@code 2 * i + 1} the text
+	 * after it. Entries are {@code null} until they are set by {@link HelpPrinter}.
+	 * @param envPrefix The common prefix for environment variables, must not be {@code null}.
+	 */
+	String[] help(String envPrefix) {
+		return envFor(envPrefix).help;
+	}
+
+	private Env envFor(String envPrefix) {
+		Env e = lastEnv;
+		if (e == null || !e.prefix.equals(envPrefix)) {
+			lastEnv = e = new Env(envPrefix, keys);
+		}
+		return e;
+	}
+
+	/**
+	 * Parses arguments as described in {@link ConfigManager#getArgs}.
+	 * @throws ConfigException if the argument keys of two keys collide.
+	 */
+	int parseArgs(Map<String, String> dest, Collection<String> destUnused, String[] src) {
+		KeyIndex index = checkedArgs().index;
+		int numSet = 0;
+		for (String raw : src) {
+			int sep = raw.indexOf('=');
+			int i = index.indexOf(raw, 0, sep < 0 ? raw.length() : sep);
+			if (i < 0) {
+				if (destUnused != null) {
+					destUnused.add(raw);
+				}
+				continue;
+			}
+			if (dest != null) {
+				// handle booleans without requiring "=true"
+				dest.put(keys[i], sep < 0 ? "true" : raw.substring(sep + 1));
+			}
+			numSet++;
+		}
+		return numSet;
+	}
+
+	/**
+	 * Retrieves the index of the key with the command line argument key {@code token.substring(0, end)}.
+	 * @return the index or {@code -1}.
+	 * @throws ConfigException if the argument keys of two keys collide.
+	 */
+	int argIndex(String token, int end) {
+		return checkedArgs().index.indexOf(token, 0, end);
+	}
+
+	private Args checkedArgs() {
+		Args a = args();
+		if (a.collisions.length > 0) {
+			throw new ConfigException("collisions for command line argument keys: " + Arrays.toString(a.collisions));
+		}
+		return a;
+	}
+
+	/**
+	 * Reads values from environment variables as described in {@link ConfigManager#getEnv}.
+	 * @throws ConfigException if the environment variable names of two keys collide.
+	 */
+	int readEnv(Map<String, String> dest, String envPrefix, Map<String, String> src) {
+		String[] collisions = envCollisions;
+		if (collisions == null) {
+			envCollisions = collisions = ConfigSupport.collisions(env, keys);
+		}
+		if (collisions.length > 0) {
+			throw new ConfigException("collisions for environment keys: " + Arrays.toString(collisions));
+		}
+		Env e = envFor(envPrefix == null ? "" : envPrefix);
+		String[] names = e.names;
+		int numSet = 0;
+		if (src.size() < names.length) {
+			// scan the smaller environment once and look up the keys by variable name
+			KeyIndex index = e.index();
+			for (Map.Entry<String, String> entry : src.entrySet()) {
+				int i = index.indexOf(entry.getKey());
+				if (i >= 0 && entry.getValue() != null) {
+					if (dest != null) {
+						dest.put(keys[i], entry.getValue());
+					}
+					numSet++;
+				}
+			}
+			return numSet;
+		}
+		for (int i = 0; i < names.length; i++) {
+			String value = src.get(names[i]);
+			if (value != null) {
+				if (dest != null) {
+					dest.put(keys[i], value);
+				}
+				numSet++;
+			}
+		}
+		return numSet;
+	}
+}
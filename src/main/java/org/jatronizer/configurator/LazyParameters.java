@@ -0,0 +1,132 @@
+package org.jatronizer.configurator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Binds the parameters of a configuration and its containers when they are first used.
+ * The keys of all parameters are known from the start, the {@link ConfigParameterField}s of a configuration
+ * instance (the configuration itself or one of its containers) are created together the first time one of
+ * them is needed. Their default values are the values of the fields at that time.
+ * The sorted key table is built eagerly by {@link #create}, it backs the key index, {@code keys()} and the
+ * duplicate key checks; only the parameter objects are deferred.
+ */
+final class LazyParameters {
+
+	/**
+	 * A parameter that is not bound yet.
+	 */
+	static final class Slot {
+		final String key;
+		final FieldTemplate<?> template;
+		final int node;
+
+		Slot(String key, FieldTemplate<?> template, int node) {
+			this.key = key;
+			this.template = template;
+			this.node = node;
+		}
+	}
+
+	private static final Comparator<Slot> BY_KEY = new Comparator<Slot>() {
+		public int compare(Slot o1, Slot o2) {
+			return o1.key.compareTo(o2.key);
+		}
+	};
+
+	/**
+	 * Collects the parameters of {@code configuration} and its containers.
+	 * @param keyPrefix A prefix for all keys, must not be {@code null}.
+	 */
+	static LazyParameters create(ConfigTemplate template, Object configuration, String keyPrefix) {
+		ArrayList<Object> nodes = new ArrayList<Object>();
+		ArrayList<Slot> slots = new ArrayList<Slot>();
+		template.layout(configuration, keyPrefix, nodes, slots);
+		Slot[] sorted = slots.toArray(new Slot[slots.size()]);
+		Arrays.sort(sorted, BY_KEY);
+		String[] keys = new String[sorted.length];
+		FieldTemplate<?>[] templates = new FieldTemplate<?>[sorted.length];
+		int[] nodeOf = new int[sorted.length];
+		int[] counts = new int[nodes.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			keys[i] = sorted[i].key;
+			templates[i] = sorted[i].template;
+			nodeOf[i] = sorted[i].node;
+			counts[sorted[i].node]++;
+		}
+		int[][] nodeKeys = new int[counts.length][];
+		for (int n = 0; n < counts.length; n++) {
+			nodeKeys[n] = new int[counts[n]];
+			counts[n] = 0;
+		}
+		for (int i = 0; i < sorted.length; i++) {
+			int n = sorted[i].node;
+			nodeKeys[n][counts[n]++] = i;
+		}
+		return new LazyParameters(nodes.toArray(), keys, templates, nodeOf, nodeKeys);
+	}
+
+	private final Object[] nodes;
+	final String[] keys;
+	// by key index
+	private final FieldTemplate<?>[] templates;
+	// by key index
+	private final int[] nodeOf;
+	// key indices by node
+	private final int[][] nodeKeys;
+	// by key index, null until bound; only written while this is locked
+	final ConfigParameter<?, ?>[] parameters;
+
+	private LazyParameters(
+			Object[] nodes,
+			String[] keys,
+			FieldTemplate<?>[] templates,
+			int[] nodeOf,
+			int[][] nodeKeys) {
+		this.nodes = nodes;
+		this.keys = keys;
+		this.templates = templates;
+		this.nodeOf = nodeOf;
+		this.nodeKeys = nodeKeys;
+		this.parameters = new ConfigParameter<?, ?>[keys.length];
+	}
+
+	/**
+	 * Creates the same unbound parameters for another instance of the configuration class.
+	 */
+	LazyParameters rebind(ConfigTemplate template, Object configuration) {
+		ArrayList<Object> rebound = new ArrayList<Object>(nodes.length);
+		template.nodes(configuration, rebound);
+		return new LazyParameters(rebound.toArray(), keys, templates, nodeOf, nodeKeys);
+	}
+
+	/**
+	 * Retrieves the parameter at key index {@code i}, all parameters of its configuration instance are bound
+	 * if it is not bound yet.
+	 */
+	synchronized ConfigParameter<?, ?> bind(int i) {
+		ConfigParameter<?, ?> p = parameters[i];
+		if (p != null) {
+			return p;
+		}
+		int node = nodeOf[i];
+		for (int k : nodeKeys[node]) {
+			parameters[k] = ConfigParameterField.bind(nodes[node], keys[k], templates[k], node);
+		}
+		return parameters[i];
+	}
+
+	/**
+	 * Reports the number of bound parameters.
+	 */
+	synchronized int bound() {
+		int n = 0;
+		for (ConfigParameter<?, ?> p : parameters) {
+			if (p != null) {
+				n++;
+			}
+		}
+		return n;
+	}
+}
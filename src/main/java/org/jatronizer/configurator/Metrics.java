@@ -0,0 +1,115 @@
+package org.jatronizer.configurator;
+
+/**
+ * Holds the installed {@link ConfigMetrics} sink.
+ * Operations read the sink once when they start; if there is none, they neither read the clock nor call
+ * anything else. The same holds for a {@link Switch} that does not record them at the moment.
+ * Reading and writing parameter values is never measured.
+ */
+final class Metrics {
+
+	// Static class without instances, constructor is hidden
+	private Metrics() {}
+
+	/**
+	 * Creates sinks that depend on newer JVMs.
+	 */
+	interface Factory {
+		ConfigMetrics metrics();
+	}
+
+	/**
+	 * Implemented by sinks that only record while they are enabled, e.g. by a Flight Recorder recording.
+	 */
+	interface Switch {
+		// whether operations are recorded
+		boolean recordsOperations();
+
+		// whether changed values are recorded
+		boolean recordsChanges();
+	}
+
+	// null if nothing is measured
+	static volatile ConfigMetrics sink;
+
+	/**
+	 * Creates a sink emitting Java Flight Recorder events.
+	 * @return the sink, {@code null} if the Flight Recorder is not available.
+	 */
+	static ConfigMetrics flightRecorder() {
+		try {
+			// only packaged and loadable on Java 11 and later
+			Class<?> c = Class.forName("org.jatronizer.configurator.FlightRecorderMetrics$FlightRecorderFactory");
+			return ((Factory) c.newInstance()).metrics();
+		} catch (Exception e) {
+			// not available
+		} catch (LinkageError e) {
+			// compiled for a newer JVM or no jdk.jfr module
+		}
+		return null;
+	}
+
+	/**
+	 * Retrieves the start time of an operation, {@code 0} if nothing is measured.
+	 */
+	static long start() {
+		ConfigMetrics m = sink;
+		return m == null || m instanceof Switch && !((Switch) m).recordsOperations() ? 0 : System.nanoTime();
+	}
+
+	/**
+	 * Reports whether changed values are recorded; if not, they do not have to be rendered for {@link #changed}.
+	 */
+	static boolean measuresChanges() {
+		ConfigMetrics m = sink;
+		return m != null && (!(m instanceof Switch) || ((Switch) m).recordsChanges());
+	}
+
+	/**
+	 * Records the operation that started at {@code start}, see {@link #start}.
+	 */
+	static void end(ConfigMetrics.Operation operation, int values, long start) {
+		end(operation, values, 0, start);
+	}
+
+	/**
+	 * Records the operation that started at {@code start} with {@code failures} values that could not be set.
+	 */
+	static void end(ConfigMetrics.Operation operation, int values, int failures, long start) {
+		ConfigMetrics m = sink;
+		if (m != null && start != 0) {
+			m.record(operation, values, failures, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Records a value that could not be set on {@code parameter}.
+	 */
+	static void failed(ConfigParameter<?, ?> parameter) {
+		ConfigMetrics m = sink;
+		if (m != null) {
+			m.conversionFailed(parameter.key(), converter(parameter));
+		}
+	}
+
+	/**
+	 * Records a change of the value of {@code parameter} if {@code current} differs from {@code previous}.
+	 */
+	static void changed(ConfigParameter<?, ?> parameter, String previous, String current) {
+		ConfigMetrics m = sink;
+		if (m != null && !(current == null ? previous == null : current.equals(previous))) {
+			m.changed(
+					parameter.key(),
+					previous == null ? -1 : previous.length(),
+					current == null ? -1 : current.length(),
+					converter(parameter)
+			);
+		}
+	}
+
+	private static Class<?> converter(ConfigParameter<?, ?> parameter) {
+		return parameter instanceof ConfigParameterField
+				? ((ConfigParameterField<?, ?>) parameter).converterType()
+				: parameter.getClass();
+	}
+}
@@ -28,50 +28,72 @@ final class MultiConfigurator implements Configurator {
 			}
 		}
 		Key[] keys = keyList.toArray(new Key[keyList.size()]);
+		long start = Metrics.start();
 		Arrays.sort(keys, new Comparator<Key>() {
 			public int compare(Key o1, Key o2) {
 				return o1.key.compareTo(o2.key);
 			}
 		});
-		// generate mapping from key to configurator and check uniqueness of keys
+		Metrics.end(ConfigMetrics.Operation.sort, keys.length, start);
+		// generate mapping from key to configurator and fetch names from keys
 		int[] keyToConfigurator = new int[keys.length];
-		String lastKey = null;
-		for (int i = 0; i < keys.length; i++) {
-			Key k = keys[i];
-			if (k.key.equals(lastKey)) {
-				throw new ConfigException("duplicate key " + k.key + " in keys");
-			}
-			lastKey = k.key;
-			keyToConfigurator[i] = k.configurator;
-		}
-		// fetch names from keys
 		String[] keyNames = new String[keys.length];
-		for (int i = 0; i < keyNames.length; i++) {
+		for (int i = 0; i < keys.length; i++) {
+			keyToConfigurator[i] = keys[i].configurator;
 			keyNames[i] = keys[i].key;
 		}
+		checkUnique(keyNames);
 		return new MultiConfigurator(configurators, keyNames, keyToConfigurator);
 	}
 
+	/**
+	 * Checks that there are no duplicates in the sorted {@code keys}.
+	 * @throws ConfigException for the first duplicate key.
+	 */
+	static void checkUnique(String[] keys) {
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i].equals(keys[i - 1])) {
+				throw new ConfigException("duplicate key " + keys[i] + " in keys");
+			}
+		}
+	}
+
 	private final Configurator[] configurators;
 	private final String[] keys;
+	private final KeyIndex index;
 	private final int[] configForKey; // key index to configurator index
+	// created on first use
+	private volatile KeyNames names;
 
-	private MultiConfigurator(Configurator[] configurators, String[] keys, int[] configForKey) {
+	MultiConfigurator(Configurator[] configurators, String[] keys, int[] configForKey) {
 		this.configurators = configurators;
 		this.keys = keys;
+		this.index = new KeyIndex(keys);
 		this.configForKey = configForKey;
 	}
 
 	private Configurator configOf(String key) {
-		int idx = Arrays.binarySearch(keys, key);
+		int idx = index.indexOf(key);
 		if (idx < 0) {
 			return null;
 		}
 		return configurators[configForKey[idx]];
 	}
 
+	KeyIndex index() {
+		return index;
+	}
+
+	KeyNames names() {
+		KeyNames n = names;
+		if (n == null) {
+			names = n = new KeyNames(keys);
+		}
+		return n;
+	}
+
 	public boolean hasKey(String key) {
-		return Arrays.binarySearch(keys, key) > 0;
+		return index.indexOf(key) >= 0;
 	}
 
 	public String[] keys() {
@@ -87,7 +109,7 @@ final class MultiConfigurator implements Configurator {
 	}
 
 	public String value(String key) {
-		int idx = Arrays.binarySearch(keys, key);
+		int idx = index.indexOf(key);
 		if (idx < 0) {
 			return null;
 		}
@@ -95,7 +117,7 @@ final class MultiConfigurator implements Configurator {
 	}
 
 	public int set(String key, String value) {
-		int idx = Arrays.binarySearch(keys, key);
+		int idx = index.indexOf(key);
 		if (idx < 0) {
 			return 0;
 		}
@@ -103,21 +125,162 @@ final class MultiConfigurator implements Configurator {
 	}
 
 	public Map<String, String> set(Map<String, String> configuration) {
-		ErrorMap invalid = ErrorMap.EMPTY;
-		for (Configurator configurator : configurators) {
-			invalid.fputAll(configurator.set(configuration));
-		}
+		long start = Metrics.start();
+		Map<String, String> invalid = set(configuration, null);
+		Metrics.end(ConfigMetrics.Operation.set, configuration.size(), invalid.size(), start);
 		return invalid;
 	}
 
 	public Map<String, String> set(Properties configuration) {
+		long start = Metrics.start();
+		Map<String, String> invalid = set(configuration, null);
+		Metrics.end(ConfigMetrics.Operation.set, configuration.size(), invalid.size(), start);
+		return invalid;
+	}
+
+	/**
+	 * Splits {@code configuration} into one batch per configurator and applies the batches.
+	 * Each entry is looked up once, entries with unknown keys are not passed on.
+	 * Listeners are notified once after all batches were applied.
+	 * @param touched Receives the subscriptions with changes, they are flushed at the end if it is {@code null}.
+	 * @return the combined invalid entries of all configurators and those with unknown keys.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	Map<String, String> set(Map<?, ?> configuration, Collection<Subscription> touched) {
 		ErrorMap invalid = ErrorMap.EMPTY;
-		for (Configurator configurator : configurators) {
-			invalid.fputAll(configurator.set(configuration));
+		HashMap<String, String>[] batches = new HashMap[configurators.length];
+		for (Map.Entry<?, ?> e : configuration.entrySet()) {
+			String key = (String) e.getKey();
+			String value = (String) e.getValue();
+			int idx = index.indexOf(key);
+			if (idx < 0) {
+				invalid = invalid.fput(key, value);
+				continue;
+			}
+			HashMap<String, String> batch = batches[configForKey[idx]];
+			if (batch == null) {
+				batch = new HashMap<String, String>();
+				batches[configForKey[idx]] = batch;
+			}
+			batch.put(key, value);
+		}
+		Collection<Subscription> pending = touched == null ? Subscription.touched() : touched;
+		for (int i = 0; i < batches.length; i++) {
+			if (batches[i] == null) {
+				continue;
+			}
+			Configurator c = configurators[i];
+			if (c instanceof InstanceConfigurator) {
+				invalid = invalid.fputAll(((InstanceConfigurator) c).set(batches[i], pending));
+			} else if (c instanceof MultiConfigurator) {
+				invalid = invalid.fputAll(((MultiConfigurator) c).set(batches[i], pending));
+			} else {
+				invalid = invalid.fputAll(c.set(batches[i]));
+			}
+		}
+		if (touched == null) {
+			Subscription.flush(pending);
 		}
 		return invalid;
 	}
 
+	void subscribe(Subscription s) {
+		for (Configurator c : configurators) {
+			Subscription.attach(c, s);
+		}
+	}
+
+	void unsubscribe(ConfigListener listener) {
+		for (Configurator c : configurators) {
+			Subscription.detach(c, listener);
+		}
+	}
+
+	/**
+	 * Switches all managed {@link InstanceConfigurator}s to concurrent mode, see
+	 * {@link InstanceConfigurator#concurrent}.
+	 * @return {@code this}.
+	 */
+	MultiConfigurator concurrent() {
+		for (Configurator c : configurators) {
+			ConfigManager.concurrent(c);
+		}
+		return this;
+	}
+
+	/**
+	 * Switches all managed {@link InstanceConfigurator}s to verification mode, see
+	 * {@link InstanceConfigurator#verifying}.
+	 * @return {@code this}.
+	 */
+	MultiConfigurator verifying() {
+		for (Configurator c : configurators) {
+			ConfigManager.verifying(c);
+		}
+		return this;
+	}
+
+	/**
+	 * Takes a snapshot of the current values of all configurators.
+	 * It is consistent for each managed configurator, but not across them.
+	 */
+	ConfigSnapshot snapshot() {
+		ConfigSnapshot[] snapshots = new ConfigSnapshot[configurators.length];
+		for (int i = 0; i < snapshots.length; i++) {
+			snapshots[i] = ConfigSnapshot.of(configurators[i]);
+		}
+		return combine(snapshots);
+	}
+
+	/**
+	 * Retrieves the default values of all configurators.
+	 */
+	ConfigSnapshot defaults() {
+		ConfigSnapshot[] defaults = new ConfigSnapshot[configurators.length];
+		for (int i = 0; i < defaults.length; i++) {
+			defaults[i] = ConfigSnapshot.defaults(configurators[i]);
+		}
+		return combine(defaults);
+	}
+
+	// combines snapshots of the configurators to one snapshot with the keys of this configurator
+	private ConfigSnapshot combine(ConfigSnapshot[] snapshots) {
+		String[] values = new String[keys.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = snapshots[configForKey[i]].value(keys[i]);
+		}
+		return new ConfigSnapshot(keys, index, values);
+	}
+
+	/**
+	 * Adds {@code value} to {@code batch} for the configurator managing {@code key}.
+	 */
+	void stage(String key, String value, StagedBatch batch) {
+		int idx = index.indexOf(key);
+		if (idx < 0) {
+			batch.add(null, -1, null, key, value);
+			return;
+		}
+		StagedBatch.stage(configurators[configForKey[idx]], key, value, batch);
+	}
+
+	/**
+	 * Visits the parameters with ranks {@code from} to {@code to - 1} in key order, they all start with
+	 * {@code prefix}. Only the configurators managing them are walked.
+	 */
+	void walk(ConfigVisitor v, String prefix, int from, int to) {
+		int[] used = new int[to - from];
+		for (int r = from; r < to; r++) {
+			used[r - from] = configForKey[index.position(r)];
+		}
+		Arrays.sort(used);
+		for (int j = 0; j < used.length; j++) {
+			if (j == 0 || used[j] != used[j - 1]) {
+				ConfigManager.subtree(configurators[used[j]], prefix).walk(v);
+			}
+		}
+	}
+
 	@SuppressWarnings("unsafe")
 	public void walk(ConfigVisitor v) {
 		for (Configurator conf : configurators) {
@@ -0,0 +1,181 @@
+package org.jatronizer.configurator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Creates a {@link MultiConfigurator} with the work split into tasks on an {@link ExecutorService}.
+ * Each task creates the configurators for a range of configurations and sorts their keys, the sorted runs are
+ * then merged pairwise in rounds of parallel tasks. Tasks never wait for other tasks, so any executor can be
+ * used. The result and the first reported error are the same as for the sequential path.
+ */
+final class ParallelConfigure {
+
+	// minimum number of configurations per task
+	static final int CHUNK = 64;
+
+	private static final Comparator<Key> BY_KEY = new Comparator<Key>() {
+		public int compare(Key o1, Key o2) {
+			return o1.key.compareTo(o2.key);
+		}
+	};
+
+	private static final class Key {
+		final String key;
+		final int configurator;
+
+		Key(String key, int configurator) {
+			this.key = key;
+			this.configurator = configurator;
+		}
+	}
+
+	// sorted keys and the indices of their configurators
+	private static final class Run {
+		final String[] keys;
+		final int[] configurators;
+
+		Run(String[] keys, int[] configurators) {
+			this.keys = keys;
+			this.configurators = configurators;
+		}
+	}
+
+	// Static class without instances, constructor is hidden
+	private ParallelConfigure() {}
+
+	/**
+	 * Creates the configurator for {@code configurations}, see {@link ConfigManager#configure(ExecutorService, Object[])}.
+	 */
+	static Configurator configure(ExecutorService executor, Object[] configurations) {
+		return build(executor, configurations, new Configurator[configurations.length]);
+	}
+
+	/**
+	 * Creates the configurator for {@code configurators}, see {@link ConfigManager#manage(ExecutorService, Configurator...)}.
+	 */
+	static Configurator manage(ExecutorService executor, Configurator[] configurators) {
+		return build(executor, null, configurators.clone());
+	}
+
+	// creates the missing configurators for configurations if it is not null
+	private static Configurator build(
+			ExecutorService executor,
+			final Object[] configurations,
+			final Configurator[] configurators
+	) {
+		// a few tasks per processor balance the load, more only add merge rounds
+		int tasks = Math.max(1, Math.min(configurators.length / CHUNK, 4 * Runtime.getRuntime().availableProcessors()));
+		int chunk = (configurators.length + tasks - 1) / tasks;
+		List<Future<Run>> runs = new ArrayList<Future<Run>>();
+		// all submitted tasks, they are cancelled if one fails
+		List<Future<Run>> submitted = new ArrayList<Future<Run>>();
+		for (int start = 0; start < configurators.length; start += chunk) {
+			final int from = start;
+			final int to = Math.min(start + chunk, configurators.length);
+			runs.add(executor.submit(new Callable<Run>() {
+				public Run call() {
+					return sorted(configurations, configurators, from, to);
+				}
+			}));
+		}
+		submitted.addAll(runs);
+		Run run = null;
+		try {
+			while (runs.size() > 1) {
+				List<Future<Run>> merged = new ArrayList<Future<Run>>((runs.size() + 1) / 2);
+				for (int i = 0; i + 1 < runs.size(); i += 2) {
+					final Run a = get(runs.get(i));
+					final Run b = get(runs.get(i + 1));
+					merged.add(executor.submit(new Callable<Run>() {
+						public Run call() {
+							return merge(a, b);
+						}
+					}));
+				}
+				if (runs.size() % 2 == 1) {
+					merged.add(runs.get(runs.size() - 1));
+				}
+				submitted.addAll(merged);
+				runs = merged;
+			}
+			run = get(runs.get(0));
+		} finally {
+			if (run == null) {
+				// a task failed, do not leave the executor busy with the others
+				for (Future<Run> f : submitted) {
+					f.cancel(false);
+				}
+			}
+		}
+		if (configurators.length == 1) {
+			return configurators[0];
+		}
+		MultiConfigurator.checkUnique(run.keys);
+		return new MultiConfigurator(configurators, run.keys, run.configurators);
+	}
+
+	private static Run get(Future<Run> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConfigException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ConfigException(cause);
+		}
+	}
+
+	private static Run sorted(Object[] configurations, Configurator[] configurators, int from, int to) {
+		ArrayList<Key> keyList = new ArrayList<Key>();
+		for (int i = from; i < to; i++) {
+			if (configurations != null) {
+				configurators[i] = InstanceConfigurator.control(configurations[i]);
+			}
+			for (String key : configurators[i].keys()) {
+				keyList.add(new Key(key, i));
+			}
+		}
+		Key[] keys = keyList.toArray(new Key[keyList.size()]);
+		Arrays.sort(keys, BY_KEY);
+		String[] names = new String[keys.length];
+		int[] owners = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			names[i] = keys[i].key;
+			owners[i] = keys[i].configurator;
+		}
+		return new Run(names, owners);
+	}
+
+	private static Run merge(Run a, Run b) {
+		int n = a.keys.length + b.keys.length;
+		String[] keys = new String[n];
+		int[] owners = new int[n];
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < n; k++) {
+			// a holds lower configurator indices, take it first for equal keys like a stable sort
+			if (j == b.keys.length || (i < a.keys.length && a.keys[i].compareTo(b.keys[j]) <= 0)) {
+				keys[k] = a.keys[i];
+				owners[k] = a.configurators[i++];
+			} else {
+				keys[k] = b.keys[j];
+				owners[k] = b.configurators[j++];
+			}
+		}
+		return new Run(keys, owners);
+	}
+}
@@ -0,0 +1,157 @@
+package org.jatronizer.configurator;
+
+import java.lang.reflect.Field;
+
+/**
+ * Accesses a field with {@link Field#get} and {@link Field#set} and their primitive forms.
+ */
+final class ReflectionAccessor extends FieldAccessor {
+
+	ReflectionAccessor(Field field) {
+		super(field);
+	}
+
+	Object get(Object target) {
+		try {
+			return field.get(target);
+		} catch (Exception e) {
+			throw getFailed(e);
+		}
+	}
+
+	void set(Object target, Object value) {
+		try {
+			field.set(target, value);
+		} catch (Exception e) {
+			throw setFailed(e);
+		}
+	}
+
+	boolean getBoolean(Object target) {
+		try {
+			return field.getBoolean(target);
+		} catch (Exception e) {
+			throw getFailed(e);
+		}
+	}
+
+	void setBoolean(Object target, boolean value) {
+		try {
+			field.setBoolean(target, value);
+		} catch (Exception e) {
+			throw setFailed(e);
+		}
+	}
+
+	char getChar(Object target) {
+		try {
+			return field.getChar(target);
+		} catch (Exception e) {
+			throw getFailed(e);
+		}
+	}
+
+	void setChar(Object target, char value) {
+		try {
+			field.setChar(target, value);
+		} catch (Exception e) {
+			throw setFailed(e);
+		}
+	}
+
+	byte getByte(Object target) {
+		try {
+			return field.getByte(target);
+		} catch (Exception e) {
+			throw getFailed(e);
+		}
+	}
+
+	void setByte(Object target, byte value) {
+		try {
+			field.setByte(target, value);
+		} catch (Exception e) {
+			throw setFailed(e);
+		}
+	}
+
+	short getShort(Object target) {
+		try {
+			return field.getShort(target);
+		} catch (Exception e) {
+			throw getFailed(e);
+		}
+	}
+
+	void setShort(Object target, short value) {
+		try {
+			field.setShort(target, value);
+		} catch (Exception e) {
+			throw setFailed(e);
+		}
+	}
+
+	int getInt(Object target) {
+		try {
+			return field.getInt(target);
+		} catch (Exception e) {
+			throw getFailed(e);
+		}
+	}
+
+	void setInt(Object target, int value) {
+		try {
+			field.setInt(target, value);
+		} catch (Exception e) {
+			throw setFailed(e);
+		}
+	}
+
+	long getLong(Object target) {
+		try {
+			return field.getLong(target);
+		} catch (Exception e) {
+			throw getFailed(e);
+		}
+	}
+
+	void setLong(Object target, long value) {
+		try {
+			field.setLong(target, value);
+		} catch (Exception e) {
+			throw setFailed(e);
+		}
+	}
+
+	float getFloat(Object target) {
+		try {
+			return field.getFloat(target);
+		} catch (Exception e) {
+			throw getFailed(e);
+		}
+	}
+
+	void setFloat(Object target, float value) {
+		try {
+			field.setFloat(target, value);
+		} catch (Exception e) {
+			throw setFailed(e);
+		}
+	}
+
+	double getDouble(Object target) {
+		try {
+			return field.getDouble(target);
+		} catch (Exception e) {
+			throw getFailed(e);
+		}
+	}
+
+	void setDouble(Object target, double value) {
+		try {
+			field.setDouble(target, value);
+		} catch (Exception e) {
+			throw setFailed(e);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package org.jatronizer.configurator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Applies a batch of values completely or not at all.
+ * All values are converted by {@link #stage} before any of them is set. {@link #commit} then sets them while
+ * the affected {@link InstanceConfigurator}s are locked for writing and restores the previous values if one
+ * of them can not be set.
+ * Parameters of other {@link Configurator} implementations are staged and restored, but not locked.
+ */
+final class StagedBatch {
+
+	private static final Comparator<InstanceConfigurator<?>> BY_ID = new Comparator<InstanceConfigurator<?>>() {
+		public int compare(InstanceConfigurator<?> o1, InstanceConfigurator<?> o2) {
+			return o1.id < o2.id ? -1 : o1.id == o2.id ? 0 : 1;
+		}
+	};
+
+	private static final class Change {
+		final InstanceConfigurator<?> owner;
+		// index of the parameter in owner
+		final int index;
+		final ConfigParameter<?, ?> parameter;
+		final String key;
+		final String value;
+		final Object converted;
+		Object previous;
+
+		Change(
+				InstanceConfigurator<?> owner,
+				int index,
+				ConfigParameter<?, ?> parameter,
+				String key,
+				String value,
+				Object converted
+		) {
+			this.owner = owner;
+			this.index = index;
+			this.parameter = parameter;
+			this.key = key;
+			this.value = value;
+			this.converted = converted;
+		}
+
+		void publish() {
+			if (parameter instanceof ConfigParameterField) {
+				ConfigParameterField<?, ?> p = (ConfigParameterField<?, ?>) parameter;
+				previous = p.rawValue();
+				p.setRaw(converted);
+			} else {
+				previous = parameter.get();
+				parameter.set(value);
+			}
+		}
+
+		// whether publish changed the value
+		boolean changed() {
+			Object current = parameter instanceof ConfigParameterField ? converted : parameter.get();
+			return current == null ? previous != null : !current.equals(previous);
+		}
+
+		// the previous value as a String
+		String previousValue() {
+			if (previous == null || !(parameter instanceof ConfigParameterField)) {
+				return (String) previous;
+			}
+			return render((ConfigParameterField<?, ?>) parameter, previous);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static <P> String render(ConfigParameterField<?, P> parameter, Object value) {
+			return parameter.toString((P) value);
+		}
+
+		void restore() {
+			if (parameter instanceof ConfigParameterField) {
+				((ConfigParameterField<?, ?>) parameter).setRaw(previous);
+			} else {
+				parameter.set((String) previous);
+			}
+		}
+	}
+
+	/**
+	 * Stages all entries of {@code configuration} for {@code configurator} and commits them.
+	 * @return the invalid entries; if there are any, no value was set.
+	 */
+	static Map<String, String> apply(Configurator configurator, Map<?, ?> configuration) {
+		StagedBatch batch = new StagedBatch(configuration.size());
+		for (Map.Entry<?, ?> e : configuration.entrySet()) {
+			stage(configurator, (String) e.getKey(), (String) e.getValue(), batch);
+		}
+		return batch.commit();
+	}
+
+	/**
+	 * Stages {@code value} for the parameter with {@code key} in {@code configurator}.
+	 */
+	static void stage(Configurator configurator, String key, String value, StagedBatch batch) {
+		if (configurator instanceof InstanceConfigurator) {
+			((InstanceConfigurator<?>) configurator).stage(key, value, batch);
+		} else if (configurator instanceof MultiConfigurator) {
+			((MultiConfigurator) configurator).stage(key, value, batch);
+		} else {
+			batch.add(null, -1, configurator.parameter(key), key, value);
+		}
+	}
+
+	private final ArrayList<Change> changes;
+	private ErrorMap invalid = ErrorMap.EMPTY;
+
+	private StagedBatch(int size) {
+		changes = new ArrayList<Change>(size);
+	}
+
+	/**
+	 * Converts {@code value} for {@code parameter} and records the change.
+	 * @param owner The configurator locked while the change is committed, may be {@code null}.
+	 * @param index The index of the parameter in {@code owner}.
+	 * @param parameter The parameter, {@code null} if {@code key} is unknown.
+	 */
+	void add(InstanceConfigurator<?> owner, int index, ConfigParameter<?, ?> parameter, String key, String value) {
+		if (parameter == null) {
+			invalid = invalid.fput(key, value);
+			return;
+		}
+		try {
+			changes.add(new Change(owner, index, parameter, key, value, parameter.fromString(value)));
+		} catch (Exception e) {
+			// probably a conversion error
+			Metrics.failed(parameter);
+			invalid = invalid.fput(key, value);
+		}
+	}
+
+	/**
+	 * Sets all staged values if all of them could be converted.
+	 * @return the invalid entries; if there are any, no value was set.
+	 */
+	Map<String, String> commit() {
+		if (!invalid.isEmpty()) {
+			return invalid;
+		}
+		InstanceConfigurator<?>[] owners = owners();
+		// a global lock order prevents deadlocks between batches for different configurators
+		Arrays.sort(owners, BY_ID);
+		Collection<Subscription> touched = null;
+		int locked = 0;
+		try {
+			for (; locked < owners.length; locked++) {
+				owners[locked].lock.writeLock().lock();
+			}
+			int published = 0;
+			try {
+				for (; published < changes.size(); published++) {
+					changes.get(published).publish();
+				}
+			} catch (RuntimeException e) {
+				Change failed = changes.get(published);
+				for (int i = published - 1; i >= 0; i--) {
+					changes.get(i).restore();
+				}
+				invalidate(published);
+				return invalid.fput(failed.key, failed.value);
+			}
+			invalidate(changes.size());
+			publishSnapshots(owners);
+			touched = changed();
+		} finally {
+			while (locked > 0) {
+				owners[--locked].lock.writeLock().unlock();
+			}
+		}
+		if (touched != null) {
+			Subscription.flush(touched);
+		}
+		return invalid;
+	}
+
+	// drops the cached values of the first n changes after they were set, all owners must be locked
+	private void invalidate(int n) {
+		for (int i = 0; i < n; i++) {
+			Change c = changes.get(i);
+			if (c.owner != null) {
+				c.owner.invalidate(c.index);
+			}
+		}
+	}
+
+	// publishes the new values of configurators in concurrent mode, all owners must be locked
+	private void publishSnapshots(InstanceConfigurator<?>[] owners) {
+		IdentityHashMap<InstanceConfigurator<?>, String[]> snapshots =
+				new IdentityHashMap<InstanceConfigurator<?>, String[]>();
+		for (InstanceConfigurator<?> owner : owners) {
+			String[] values = owner.copySnapshot();
+			if (values != null) {
+				snapshots.put(owner, values);
+			}
+		}
+		if (snapshots.isEmpty()) {
+			return;
+		}
+		for (Change c : changes) {
+			String[] values = c.owner == null ? null : snapshots.get(c.owner);
+			if (values != null) {
+				values[c.index] = c.parameter.get();
+			}
+		}
+		for (Map.Entry<InstanceConfigurator<?>, String[]> e : snapshots.entrySet()) {
+			e.getKey().publish(e.getValue());
+		}
+	}
+
+	// records the published changes for the subscriptions of their owners and the metrics, all owners must be locked
+	private Collection<Subscription> changed() {
+		boolean measured = Metrics.measuresChanges();
+		Collection<Subscription> touched = null;
+		for (Change c : changes) {
+			boolean observed = c.owner != null && c.owner.observed();
+			if ((observed || measured) && c.changed()) {
+				if (observed) {
+					if (touched == null) {
+						touched = Subscription.touched();
+					}
+					c.owner.changed(c.index, touched);
+				}
+				if (measured) {
+					Metrics.changed(c.parameter, c.previousValue(), c.parameter.get());
+				}
+			}
+		}
+		return touched;
+	}
+
+	private InstanceConfigurator<?>[] owners() {
+		IdentityHashMap<InstanceConfigurator<?>, Boolean> owners =
+				new IdentityHashMap<InstanceConfigurator<?>, Boolean>();
+		for (Change c : changes) {
+			if (c.owner != null) {
+				owners.put(c.owner, Boolean.TRUE);
+			}
+		}
+		return owners.keySet().toArray(new InstanceConfigurator<?>[owners.size()]);
+	}
+}
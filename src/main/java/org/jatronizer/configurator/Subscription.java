@@ -0,0 +1,197 @@
+package org.jatronizer.configurator;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Collects the changed keys for a {@link ConfigListener} and delivers them on its executor.
+ * Writers {@link #offer} each changed key while they hold the write lock and {@link #flush} the touched
+ * subscriptions once the whole batch is done. At most one delivery per subscription is scheduled at a time,
+ * keys changed before it runs are delivered with it.
+ */
+final class Subscription implements Runnable {
+
+	static final Subscription[] NONE = {};
+
+	/**
+	 * Adds {@code s} to all configurators managed by {@code configurator}.
+	 * Parameters of other {@link Configurator} implementations are not observed.
+	 * @throws ConfigException if {@code configurator} can not be observed at all.
+	 */
+	static void attach(Configurator configurator, Subscription s) {
+		if (configurator instanceof InstanceConfigurator) {
+			((InstanceConfigurator) configurator).subscribe(s);
+		} else if (configurator instanceof MultiConfigurator) {
+			((MultiConfigurator) configurator).subscribe(s);
+		} else if (configurator == s.configurator) {
+			throw new ConfigException("configurator " + configurator + " does not support listeners");
+		}
+	}
+
+	/**
+	 * Removes all subscriptions of {@code listener} from the configurators managed by {@code configurator}.
+	 */
+	static void detach(Configurator configurator, ConfigListener listener) {
+		if (configurator instanceof InstanceConfigurator) {
+			((InstanceConfigurator) configurator).unsubscribe(listener);
+		} else if (configurator instanceof MultiConfigurator) {
+			((MultiConfigurator) configurator).unsubscribe(listener);
+		}
+	}
+
+	/**
+	 * Creates a copy of {@code subscriptions} with {@code s}.
+	 */
+	static Subscription[] with(Subscription[] subscriptions, Subscription s) {
+		Subscription[] result = new Subscription[subscriptions.length + 1];
+		System.arraycopy(subscriptions, 0, result, 0, subscriptions.length);
+		result[subscriptions.length] = s;
+		return result;
+	}
+
+	/**
+	 * Creates a copy of {@code subscriptions} without those of {@code listener}.
+	 */
+	static Subscription[] without(Subscription[] subscriptions, ConfigListener listener) {
+		int n = 0;
+		Subscription[] result = new Subscription[subscriptions.length];
+		for (Subscription s : subscriptions) {
+			if (s.listener != listener) {
+				result[n++] = s;
+			}
+		}
+		if (n == 0) {
+			return NONE;
+		}
+		if (n == result.length) {
+			return subscriptions;
+		}
+		Subscription[] trimmed = new Subscription[n];
+		System.arraycopy(result, 0, trimmed, 0, n);
+		return trimmed;
+	}
+
+	/**
+	 * Offers {@code key} to all {@code subscriptions} and adds those interested in it to {@code touched}.
+	 */
+	static void offer(Subscription[] subscriptions, String key, Collection<Subscription> touched) {
+		for (Subscription s : subscriptions) {
+			if (s.offer(key)) {
+				touched.add(s);
+			}
+		}
+	}
+
+	/**
+	 * Schedules the delivery for all {@code touched} subscriptions.
+	 */
+	static void flush(Collection<Subscription> touched) {
+		for (Subscription s : touched) {
+			s.flush();
+		}
+	}
+
+	/**
+	 * Creates the collection for {@link #offer} and {@link #flush}.
+	 */
+	static Collection<Subscription> touched() {
+		return new HashSet<Subscription>();
+	}
+
+	final Configurator configurator;
+	final ConfigListener listener;
+	private final Executor executor;
+	// observed keys, null to use prefix
+	private final Set<String> keys;
+	private final String prefix;
+	// guarded by this
+	private Set<String> pending = new LinkedHashSet<String>();
+	private boolean scheduled;
+
+	/**
+	 * Creates a subscription for {@code listener}.
+	 * @param keys The observed keys, {@code null} to observe all keys starting with {@code prefix}.
+	 */
+	Subscription(
+			Configurator configurator,
+			ConfigListener listener,
+			Executor executor,
+			Set<String> keys,
+			String prefix
+	) {
+		if (listener == null) {
+			throw new NullPointerException("listener is null");
+		}
+		if (executor == null) {
+			throw new NullPointerException("executor is null");
+		}
+		this.configurator = configurator;
+		this.listener = listener;
+		this.executor = executor;
+		this.keys = keys;
+		this.prefix = prefix == null ? "" : prefix;
+	}
+
+	/**
+	 * Creates a subscription for the same listener and keys that passes {@code configurator} to the listener.
+	 */
+	Subscription to(Configurator configurator) {
+		return new Subscription(configurator, listener, executor, keys, prefix);
+	}
+
+	/**
+	 * Records a change of {@code key}.
+	 * @return whether the key is observed.
+	 */
+	boolean offer(String key) {
+		if (keys == null ? !key.startsWith(prefix) : !keys.contains(key)) {
+			return false;
+		}
+		synchronized (this) {
+			pending.add(key);
+		}
+		return true;
+	}
+
+	/**
+	 * Schedules the delivery of all recorded changes unless it already is.
+	 */
+	void flush() {
+		synchronized (this) {
+			if (scheduled || pending.isEmpty()) {
+				return;
+			}
+			scheduled = true;
+		}
+		try {
+			executor.execute(this);
+		} catch (RejectedExecutionException e) {
+			// the changes are delivered with the next flush
+			synchronized (this) {
+				scheduled = false;
+			}
+		}
+	}
+
+	public void run() {
+		Set<String> changed;
+		synchronized (this) {
+			changed = pending;
+			pending = new LinkedHashSet<String>();
+		}
+		try {
+			listener.changed(configurator, Collections.unmodifiableSet(changed));
+		} finally {
+			synchronized (this) {
+				scheduled = false;
+			}
+			// changes made during the call
+			flush();
+		}
+	}
+}
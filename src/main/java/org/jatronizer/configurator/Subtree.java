@@ -0,0 +1,142 @@
+package org.jatronizer.configurator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A view of the parameters of a configurator with keys starting with a common prefix.
+ * The keys of the view are the range of consecutive ranks in the key order of the {@link KeyIndex} of the
+ * configurator, nothing is copied when the view is created. Lookups check the prefix and are passed on,
+ * {@link #keys} and {@link #walk} take time proportional to the number of keys in the view.
+ */
+final class Subtree implements Configurator {
+
+	/**
+	 * Creates the view of the keys in {@code configurator} starting with {@code prefix}.
+	 */
+	static Subtree of(Configurator configurator, String prefix) {
+		if (configurator instanceof Subtree) {
+			Subtree s = (Subtree) configurator;
+			if (s.prefix.startsWith(prefix)) {
+				return s;
+			}
+			if (!prefix.startsWith(s.prefix)) {
+				return new Subtree(s.configurator, s.index, prefix, s.from, s.from);
+			}
+			configurator = s.configurator;
+		}
+		KeyIndex index = KeyIndex.of(configurator);
+		int from = index.first(prefix);
+		return new Subtree(configurator, index, prefix, from, index.end(prefix, from));
+	}
+
+	private final Configurator configurator;
+	private final KeyIndex index;
+	private final String prefix;
+	// range of ranks in index
+	private final int from;
+	private final int to;
+
+	private Subtree(Configurator configurator, KeyIndex index, String prefix, int from, int to) {
+		this.configurator = configurator;
+		this.index = index;
+		this.prefix = prefix;
+		this.from = from;
+		this.to = to;
+	}
+
+	private boolean contains(String key) {
+		return key != null && key.startsWith(prefix) && from < to;
+	}
+
+	public boolean hasKey(String key) {
+		return contains(key) && index.indexOf(key) >= 0;
+	}
+
+	public String[] keys() {
+		String[] keys = new String[to - from];
+		for (int r = from; r < to; r++) {
+			keys[r - from] = index.key(index.position(r));
+		}
+		return keys;
+	}
+
+	public ConfigParameter parameter(String key) {
+		return contains(key) ? configurator.parameter(key) : null;
+	}
+
+	public String value(String key) {
+		return contains(key) ? configurator.value(key) : null;
+	}
+
+	public int set(String key, String value) {
+		return contains(key) ? configurator.set(key, value) : 0;
+	}
+
+	public Map<String, String> set(Map<String, String> configuration) {
+		return setAll(configuration);
+	}
+
+	public Map<String, String> set(Properties configuration) {
+		return setAll(configuration);
+	}
+
+	// passes the entries with keys in this view on as one batch
+	private Map<String, String> setAll(Map<?, ?> configuration) {
+		ErrorMap invalid = ErrorMap.EMPTY;
+		HashMap<String, String> batch = new HashMap<String, String>();
+		for (Map.Entry<?, ?> e : configuration.entrySet()) {
+			String key = (String) e.getKey();
+			String value = (String) e.getValue();
+			if (contains(key)) {
+				batch.put(key, value);
+			} else {
+				invalid = invalid.fput(key, value);
+			}
+		}
+		if (!batch.isEmpty()) {
+			invalid = invalid.fputAll(configurator.set(batch));
+		}
+		return invalid;
+	}
+
+	public void walk(final ConfigVisitor v) {
+		if (from == to) {
+			return;
+		}
+		if (configurator instanceof InstanceConfigurator) {
+			((InstanceConfigurator) configurator).walk(v, from, to);
+			return;
+		}
+		if (configurator instanceof MultiConfigurator) {
+			((MultiConfigurator) configurator).walk(v, prefix, from, to);
+			return;
+		}
+		// visit configurations only if they contain parameters in this view
+		configurator.walk(new ConfigVisitor() {
+			private String name;
+			private String tags;
+			private String description;
+			private Configurator current;
+
+			public void visitConfiguration(String name, String tags, String description, Configurator c) {
+				this.name = name;
+				this.tags = tags;
+				this.description = description;
+				this.current = c;
+			}
+
+			public void visitParameter(ConfigParameter parameter, String currentValue) {
+				if (!parameter.key().startsWith(prefix)) {
+					return;
+				}
+				if (current != null) {
+					v.visitConfiguration(name, tags, description, current);
+					current = null;
+				}
+				v.visitParameter(parameter, currentValue);
+			}
+		});
+	}
+}
@@ -0,0 +1,81 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ArgTokenizerTest {
+
+	static class Options {
+		@Parameter
+		String host = "localhost";
+		@Parameter
+		int port = 25;
+		@Parameter
+		boolean verbose;
+		@Parameter
+		Boolean quiet = Boolean.FALSE;
+	}
+
+	private static File file(String content) throws IOException {
+		File file = File.createTempFile("configurator", ".args");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void sameAsSetFromArgs() throws IOException {
+		String[] args = {"-host=example.com", "-verbose", "-quiet", "-port=x", "-unknown=1", "plain", "-host=a=b"};
+		Options expected = new Options();
+		Options actual = new Options();
+		String[] expectedUnused = ConfigManager.setFromArgs(ConfigManager.configure(expected), args);
+		String[] unused = ConfigManager.setFromCommandLine(ConfigManager.configure(actual), args);
+		assertEquals(Arrays.asList(expectedUnused), Arrays.asList(unused));
+		assertEquals(expected.host, actual.host);
+		assertEquals(expected.port, actual.port);
+		assertEquals(expected.verbose, actual.verbose);
+		assertEquals(expected.quiet, actual.quiet);
+	}
+
+	@Test
+	public void separatedValuesAndFiles() throws IOException {
+		File file = file(""
+				+ "# comment -port 1\n"
+				+ "-host \"exa mple.com\"\t-verbose\r\n"
+				+ "-port\n"
+				+ "  587 '-x\\'y' @ignored\n");
+		Options options = new Options();
+		Configurator c = ConfigManager.configure(options);
+		String[] unused = ConfigManager.setFromCommandLine(c, new String[]{"-quiet", "@" + file.getPath(), "@@x", "-host"});
+		assertEquals(Arrays.asList("-x'y", "@ignored", "@x", "-host"), Arrays.asList(unused));
+		assertEquals("exa mple.com", options.host);
+		assertEquals(587, options.port);
+		assertTrue(options.verbose);
+		assertTrue(options.quiet);
+		// a following key is not taken as the value
+		options = new Options();
+		unused = ConfigManager.setFromCommandLine(ConfigManager.configure(options),
+				new String[]{"-port", "-verbose", "-host", "-port=26", "-host", "-x"});
+		assertEquals(Arrays.asList("-port", "-host"), Arrays.asList(unused));
+		assertEquals(26, options.port);
+		assertEquals("-x", options.host);
+		assertTrue(options.verbose);
+		try {
+			ConfigManager.setFromCommandLine(c, new String[]{"@" + file(" -port '1")});
+			fail("unterminated quote was accepted");
+		} catch (ConfigException e) {
+			assertTrue(e.getMessage().startsWith("unterminated quote in "));
+		}
+	}
+}
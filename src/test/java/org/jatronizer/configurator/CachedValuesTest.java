@@ -0,0 +1,49 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CachedValuesTest {
+
+	@Test
+	public void cached() {
+		ConfigTemplateTest.Server server = new ConfigTemplateTest.Server();
+		Configurator c = ConfigManager.configure(server);
+		assertEquals("25", c.value("port"));
+		server.port = 26;
+		assertEquals("direct writes are not seen", "25", c.value("port"));
+		assertEquals(1, c.set("port", "27"));
+		assertEquals("27", c.value("port"));
+		assertTrue(ConfigManager.apply(c, Collections.singletonMap("port", "28")).isEmpty());
+		assertEquals("28", c.value("port"));
+		assertTrue(c.set(Collections.singletonMap("port", "29")).isEmpty());
+		assertEquals("29", ConfigManager.snapshot(c).value("port"));
+	}
+
+	@Test
+	public void verifying() {
+		ConfigTemplateTest.Server server = new ConfigTemplateTest.Server();
+		Configurator c = ConfigManager.verifying(ConfigManager.configure(server));
+		Configurator concurrent = ConfigManager.verifying(ConfigManager.concurrent(ConfigManager.configure(server)));
+		assertSame(c, ConfigManager.verifying(c));
+		Configurator plain = ConfigManager.configure(server);
+		assertSame(plain, ConfigManager.verifying(plain));
+		assertEquals("25", c.value("port"));
+		assertEquals("25", concurrent.value("port"));
+		assertEquals(1, c.set("port", "26"));
+		assertEquals(1, concurrent.set("port", "26"));
+		assertEquals("26", c.value("port"));
+		server.port = 27;
+		for (Configurator v : new Configurator[]{c, concurrent}) {
+			try {
+				v.value("port");
+				fail("direct write was not detected");
+			} catch (ConfigException e) {
+				assertEquals("parameter port is 27 but was set to 26 through its configurator", e.getMessage());
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentSnapshotTest {
+
+	static class Endpoint {
+		@Parameter
+		String host = "host0";
+		@Parameter
+		int port = 0;
+	}
+
+	@Test
+	public void consistentSnapshots() throws Exception {
+		final Endpoint endpoint = new Endpoint();
+		final Configurator c = ConfigManager.concurrent(ConfigManager.configure(endpoint));
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		final long end = System.currentTimeMillis() + 300;
+		Thread[] readers = new Thread[4];
+		for (int t = 0; t < readers.length; t++) {
+			readers[t] = new Thread() {
+				public void run() {
+					while (System.currentTimeMillis() < end && failure.get() == null) {
+						ConfigSnapshot s = ConfigManager.snapshot(c);
+						String host = s.value("host");
+						String port = s.value("port");
+						if (!host.equals("host" + port)) {
+							failure.set(host + ":" + port);
+						}
+					}
+				}
+			};
+			readers[t].start();
+		}
+		Map<String, String> batch = new HashMap<String, String>();
+		for (int i = 1; System.currentTimeMillis() < end; i++) {
+			batch.put("host", "host" + i);
+			batch.put("port", "" + i);
+			assertTrue(c.set(batch).isEmpty());
+		}
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertNull("inconsistent snapshot", failure.get());
+		assertEquals(ConfigManager.snapshot(c).value("host"), "host" + endpoint.port);
+	}
+
+	@Test
+	public void modes() {
+		Endpoint endpoint = new Endpoint();
+		Configurator plain = ConfigManager.configure(endpoint);
+		Configurator concurrent = ConfigManager.concurrent(plain);
+		assertSame(concurrent, ConfigManager.concurrent(concurrent));
+		assertEquals(1, concurrent.set("port", "80"));
+		assertEquals("80", concurrent.value("port"));
+		assertEquals(80, endpoint.port);
+		ConfigSnapshot before = ConfigManager.snapshot(concurrent);
+		Map<String, String> batch = new HashMap<String, String>();
+		batch.put("host", "example.com");
+		batch.put("port", "8080");
+		assertTrue(ConfigManager.apply(concurrent, batch).isEmpty());
+		assertEquals("80", before.value("port"));
+		assertEquals("example.com", ConfigManager.snapshot(concurrent).value("host"));
+		assertEquals(ConfigManager.snapshot(plain).toMap(), ConfigManager.snapshot(concurrent).toMap());
+		assertNull(before.value("unknown"));
+		Configurator managed = ConfigManager.concurrent(ConfigManager.manage(plain, ConfigManager.configure(new ConfigTemplateTest.Mail())));
+		assertEquals("8080", ConfigManager.snapshot(managed).value("port"));
+		assertEquals("me", ConfigManager.snapshot(managed).value("sender"));
+	}
+
+	@Test
+	public void switchInPlace() {
+		Endpoint endpoint = new Endpoint();
+		Configurator plain = ConfigManager.configure(endpoint);
+		final List<Set<String>> changes = new ArrayList<Set<String>>();
+		ConfigManager.addListener(plain, "", new ConfigListener() {
+			public void changed(Configurator configurator, Set<String> keys) {
+				changes.add(keys);
+			}
+		}, new Executor() {
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		Configurator concurrent = ConfigManager.concurrent(plain);
+		assertSame(plain, concurrent);
+		assertEquals(1, plain.set("port", "81"));
+		assertEquals("81", ConfigManager.snapshot(concurrent).value("port"));
+		assertEquals(Collections.singletonList(Collections.singleton("port")), changes);
+	}
+
+	@Test
+	public void diffAndRestore() {
+		Endpoint endpoint = new Endpoint();
+		Configurator c = ConfigManager.manage(
+				ConfigManager.configure(endpoint), ConfigManager.configure(new ConfigTemplateTest.Mail()));
+		ConfigSnapshot defaults = ConfigManager.defaults(c);
+		ConfigSnapshot before = ConfigManager.snapshot(c);
+		assertTrue(defaults.diff(before).isEmpty());
+		c.set("port", "80");
+		c.set("smtp-host", "example.com");
+		ConfigSnapshot after = ConfigManager.snapshot(c);
+		Map<String, String> expected = new HashMap<String, String>();
+		expected.put("port", "80");
+		expected.put("smtp-host", "example.com");
+		assertEquals(expected, before.diff(after));
+		assertEquals(expected, defaults.diff(after));
+		// snapshots of other configurators are compared by key
+		Map<String, String> diff = ConfigManager.snapshot(ConfigManager.configure(new Endpoint())).diff(after);
+		assertEquals("80", diff.get("port"));
+		assertFalse(diff.containsKey("host"));
+		assertEquals("me", diff.get("sender"));
+		assertTrue(ConfigManager.restore(c, before).isEmpty());
+		assertEquals(0, endpoint.port);
+		assertEquals("localhost", c.value("smtp-host"));
+		assertTrue(before.diff(ConfigManager.snapshot(c)).isEmpty());
+	}
+}
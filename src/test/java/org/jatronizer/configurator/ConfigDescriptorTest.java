@@ -0,0 +1,126 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConfigDescriptorTest {
+
+	enum Level {
+		@Description("few")
+		low,
+		high
+	}
+
+	static class Inner {
+		@Parameter
+		int count = 1;
+	}
+
+	@Description("a configuration")
+	static class Described {
+		@Parameter(key = "a/text", tag = "t")
+		@Description("some text")
+		String text = "x";
+
+		@Parameter
+		int number = 7;
+
+		@Parameter
+		private long hidden = 3;
+
+		@Parameter
+		final String fixed = "f";
+
+		@Parameter
+		Level level = Level.high;
+
+		@Parameter(key = "inner/", container = true)
+		final Inner inner = new Inner();
+	}
+
+	static class Shared {
+		@Parameter(key = "shared/", container = true)
+		static final Inner shared = new Inner();
+
+		@Parameter
+		int number;
+	}
+
+	private static class Hidden {
+		@Parameter
+		private int number;
+	}
+
+	@Test
+	public void generated() {
+		ConfigDescriptor d = ConfigDescriptor.of(Described.class);
+		assertNotNull("descriptor is generated", d);
+		assertSame("descriptor is cached", d, ConfigDescriptor.of(Described.class));
+		assertEquals("a configuration", d.description());
+		assertEquals("a configuration", ConfigSupport.typeDescription(Described.class));
+		String[] fields = new String[d.entries.length];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = d.entries[i].field;
+		}
+		assertArrayEquals("entries are ordered by key",
+				new String[]{"text", "fixed", "hidden", "inner", "level", "number"}, fields);
+		ConfigDescriptor.Entry text = d.entries[0];
+		assertTrue(text.readable && text.writable);
+		ConfigDescriptor.Entry fixed = d.entries[1];
+		assertTrue("final fields are readable", fixed.readable);
+		assertFalse("final fields are not writable", fixed.writable);
+		ConfigDescriptor.Entry hidden = d.entries[2];
+		assertFalse("private fields are not accessed directly", hidden.readable || hidden.writable);
+		assertTrue(d.entries[3].container);
+		assertNull("classes without parameters have no descriptor", ConfigDescriptor.of(ConfigDescriptorTest.class));
+	}
+
+	@Test
+	public void configure() {
+		Described conf = new Described();
+		Configurator c = ConfigManager.configure(conf);
+		assertArrayEquals(new String[]{"a/text", "fixed", "hidden", "inner/count", "level", "number"}, c.keys());
+		ConfigParameter text = c.parameter("a/text");
+		assertEquals("t", text.tag());
+		assertEquals("some text", text.description());
+		assertEquals("x", text.defaultValue());
+		ConfigParameter level = c.parameter("level");
+		assertArrayEquals(new String[]{"high", "low"}, level.options());
+		assertEquals("few", level.description("low"));
+		assertEquals("", level.description("high"));
+		assertNull(level.description("medium"));
+		assertEquals(Level.class, level.type());
+		assertEquals(1, c.set("number", "9"));
+		assertEquals(9, conf.number);
+		assertEquals(1, c.set("hidden", "4"));
+		assertEquals(4L, conf.hidden);
+		assertEquals(1, c.set("fixed", "g"));
+		assertEquals("g", c.value("fixed"));
+		assertEquals(1, c.set("inner/count", "2"));
+		assertEquals(2, conf.inner.count);
+		assertEquals(0, c.set("number", "nine"));
+		assertEquals("9", c.value("number"));
+	}
+
+	@Test
+	public void staticContainer() {
+		assertNotNull("static containers are described", ConfigDescriptor.of(Shared.class));
+		Configurator c = ConfigManager.configure(new Shared());
+		assertArrayEquals(new String[]{"number", "shared/count"}, c.keys());
+		assertEquals(1, c.set("shared/count", "5"));
+		assertEquals(5, Shared.shared.count);
+		Shared.shared.count = 1;
+	}
+
+	@Test
+	public void privateClass() {
+		ConfigDescriptor d = ConfigDescriptor.of(Hidden.class);
+		assertNotNull("private classes are described", d);
+		assertFalse("fields of private classes are accessed with reflection", d.entries[0].readable);
+		Hidden conf = new Hidden();
+		Configurator c = ConfigManager.configure(conf);
+		assertEquals(1, c.set("number", "3"));
+		assertEquals(3, conf.number);
+	}
+}
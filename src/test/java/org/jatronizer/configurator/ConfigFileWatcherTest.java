@@ -0,0 +1,88 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConfigFileWatcherTest {
+
+	// records the batches passed to set
+	static class Recording implements Configurator {
+		final Configurator c;
+		final List<Map<String, String>> batches = Collections.synchronizedList(new ArrayList<Map<String, String>>());
+
+		Recording(Configurator c) {
+			this.c = c;
+		}
+
+		public boolean hasKey(String key) {return c.hasKey(key);}
+		public String[] keys() {return c.keys();}
+		public ConfigParameter parameter(String key) {return c.parameter(key);}
+		public String value(String key) {return c.value(key);}
+		public int set(String key, String value) {return c.set(key, value);}
+		public Map<String, String> set(Properties configuration) {return c.set(configuration);}
+		public void walk(ConfigVisitor visitor) {c.walk(visitor);}
+
+		public Map<String, String> set(Map<String, String> configuration) {
+			batches.add(new HashMap<String, String>(configuration));
+			return c.set(configuration);
+		}
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	private static void await(Recording r, int batches) throws InterruptedException {
+		for (long end = System.currentTimeMillis() + 10000; r.batches.size() < batches; ) {
+			assertTrue("timeout", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void reload() throws Exception {
+		Path dir = Files.createTempDirectory("configurator");
+		Path file = dir.resolve("server.properties");
+		write(file, "host=example.com\nport=25\nunknown=1\n");
+		ConfigTemplateTest.Server server = new ConfigTemplateTest.Server();
+		Recording r = new Recording(ConfigManager.configure(server));
+		ConfigFileWatcher watcher = new ConfigFileWatcher(20, TimeUnit.MILLISECONDS);
+		try {
+			watcher.watch(file, r);
+			assertEquals("example.com", server.host);
+			assertEquals(Collections.singletonMap("host", "example.com"), r.batches.get(0));
+			write(file, "host=example.com\nport=587\n");
+			await(r, 2);
+			assertEquals(Collections.singletonMap("port", "587"), r.batches.get(1));
+			assertEquals(587, server.port);
+			// same content, different time
+			Thread.sleep(20);
+			write(file, "host=example.com\nport=587\n");
+			write(file, "host=mail.example.com\nport=587\n");
+			await(r, 3);
+			Thread.sleep(100);
+			assertEquals("bursts are applied once", 3, r.batches.size());
+			assertEquals(Collections.singletonMap("host", "mail.example.com"), r.batches.get(2));
+			// a malformed file is skipped without stopping the watcher
+			write(file, "host=\\uZZZZ\nport=26\n");
+			Thread.sleep(100);
+			assertEquals(3, r.batches.size());
+			write(file, "host=mail.example.com\nport=26\n");
+			await(r, 4);
+			assertEquals(Collections.singletonMap("port", "26"), r.batches.get(3));
+			assertEquals(26, server.port);
+		} finally {
+			watcher.close();
+			Files.delete(file);
+			Files.delete(dir);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConfigImageTest {
+
+	@Test
+	public void warmRestart() throws IOException {
+		File image = File.createTempFile("configurator", ".image");
+		image.deleteOnExit();
+		image.delete();
+		Map<String, String> env = new HashMap<String, String>();
+		env.put("APP_PORT", "587");
+		String[] args = {"-smtp-host=exämple.com"};
+		long fingerprint = ConfigImage.fingerprint(env, args);
+
+		ConfigTemplateTest.Mail mail = new ConfigTemplateTest.Mail();
+		Configurator c = ConfigManager.configure(mail);
+		assertFalse(ConfigImage.apply(image, c, fingerprint));
+		c.set("smtp-port", "587");
+		ConfigManager.setFromArgs(c, args);
+		ConfigImage.write(image, c, fingerprint);
+
+		ConfigTemplateTest.Mail restarted = new ConfigTemplateTest.Mail();
+		Configurator r = ConfigManager.configure(restarted);
+		assertFalse(ConfigImage.apply(image, r, fingerprint + 1));
+		assertEquals(25, restarted.smtp.port);
+		assertTrue(ConfigImage.apply(image, r, ConfigImage.fingerprint(env, args)));
+		assertEquals(587, restarted.smtp.port);
+		assertEquals("exämple.com", restarted.smtp.host);
+		assertEquals("me", restarted.sender);
+
+		// other default values
+		ConfigTemplateTest.Mail changed = new ConfigTemplateTest.Mail();
+		changed.sender = "you";
+		assertFalse(ConfigImage.apply(image, ConfigManager.configure(changed), fingerprint));
+		env.put("APP_SENDER", "you");
+		assertFalse(fingerprint == ConfigImage.fingerprint(env, args));
+
+		RandomAccessFile raf = new RandomAccessFile(image, "rw");
+		try {
+			raf.seek(raf.length() - 12);
+			raf.write('x');
+		} finally {
+			raf.close();
+		}
+		assertFalse(ConfigImage.apply(image, ConfigManager.configure(new ConfigTemplateTest.Mail()), fingerprint));
+	}
+}
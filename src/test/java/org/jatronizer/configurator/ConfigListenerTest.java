@@ -0,0 +1,85 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class ConfigListenerTest {
+
+	// runs tasks when asked to
+	static class Queue implements Executor {
+		final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		int runAll() {
+			int n = 0;
+			while (!tasks.isEmpty()) {
+				tasks.remove(0).run();
+				n++;
+			}
+			return n;
+		}
+	}
+
+	static class Recorder implements ConfigListener {
+		final ArrayList<Set<String>> calls = new ArrayList<Set<String>>();
+
+		public void changed(Configurator configurator, Set<String> keys) {
+			calls.add(new TreeSet<String>(keys));
+		}
+	}
+
+	private static Set<String> keys(String... keys) {
+		return new TreeSet<String>(Arrays.asList(keys));
+	}
+
+	@Test
+	public void coalesced() {
+		ConfigTemplateTest.Mail mail = new ConfigTemplateTest.Mail();
+		ConvertersTest.Primitives primitives = new ConvertersTest.Primitives();
+		Configurator c = ConfigManager.configure(mail, primitives);
+		Queue queue = new Queue();
+		Recorder all = new Recorder();
+		Recorder smtp = new Recorder();
+		Recorder port = new Recorder();
+		ConfigManager.addListener(c, "", all, queue);
+		ConfigManager.addListener(c, "smtp-", smtp, queue);
+		ConfigManager.addListener(c, new String[]{"smtp-port"}, port, queue);
+		Map<String, String> batch = new HashMap<String, String>();
+		batch.put("sender", "you");
+		batch.put("smtp-host", "example.com");
+		batch.put("i", "3");
+		batch.put("j", "5");
+		assertTrue(c.set(batch).isEmpty());
+		assertEquals("one call per listener and batch", 2, queue.tasks.size());
+		assertEquals(1, c.set("smtp-port", "587"));
+		assertEquals(0, c.set("smtp-port", "invalid"));
+		assertEquals("pending calls are not scheduled again", 3, queue.tasks.size());
+		assertEquals(3, queue.runAll());
+		assertEquals(Arrays.asList(keys("j", "sender", "smtp-host", "smtp-port")), all.calls);
+		assertEquals(Arrays.asList(keys("smtp-host", "smtp-port")), smtp.calls);
+		assertEquals(Arrays.asList(keys("smtp-port")), port.calls);
+		assertTrue(ConfigManager.apply(c, Collections.singletonMap("smtp-port", "25")).isEmpty());
+		assertTrue(ConfigManager.apply(c, Collections.singletonMap("smtp-port", "25")).isEmpty());
+		assertEquals(3, queue.runAll());
+		assertEquals(keys("smtp-port"), port.calls.get(1));
+		ConfigManager.removeListener(c, all);
+		ConfigManager.removeListener(c, smtp);
+		assertEquals(1, c.set("smtp-port", "26"));
+		assertEquals(1, queue.runAll());
+		assertEquals(2, all.calls.size());
+		assertEquals(3, port.calls.size());
+	}
+
+	@Test(expected = ConfigException.class)
+	public void unknownKey() {
+		ConfigManager.addListener(ConfigManager.configure(new ConfigTemplateTest.Server()), new String[]{"nope"},
+				new Recorder(), new Queue());
+	}
+}
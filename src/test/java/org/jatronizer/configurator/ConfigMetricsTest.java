@@ -0,0 +1,120 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.jatronizer.configurator.ConfigMetrics.Operation.*;
+import static org.junit.Assert.*;
+
+public class ConfigMetricsTest {
+
+	// only configured here, so its class is scanned while it is measured
+	static class Scanned {
+		@Parameter
+		int port;
+		@Parameter
+		String host;
+	}
+
+	private static long sum(long[] histogram) {
+		long sum = 0;
+		for (long n : histogram) {
+			sum += n;
+		}
+		return sum;
+	}
+
+	@Test
+	public void inMemory() {
+		InMemoryConfigMetrics metrics = new InMemoryConfigMetrics();
+		ConfigManager.setMetrics(metrics);
+		try {
+			assertSame(metrics, ConfigManager.metrics());
+			ConfigTemplateTest.Mail mail = new ConfigTemplateTest.Mail();
+			Configurator c = ConfigManager.configure(mail, new ConvertersTest.Primitives());
+			assertEquals(1, metrics.count(configure));
+			assertEquals(c.keys().length, metrics.values(configure));
+
+			assertEquals(1, c.set("smtp-port", "587"));
+			assertEquals(0, c.set("smtp-port", "many"));
+			Map<String, String> batch = new HashMap<String, String>();
+			batch.put("sender", "you");
+			batch.put("i", "x");
+			assertEquals(1, c.set(batch).size());
+			assertEquals(1, ConfigManager.apply(c, Collections.singletonMap("b", "1000")).size());
+			assertEquals(4, metrics.count(set));
+			assertEquals(5, metrics.values(set));
+			assertEquals(4, sum(metrics.histogram(set)));
+			assertEquals(3, metrics.failures(set));
+			assertEquals(Long.valueOf(1), metrics.changesByKey().get("smtp-port"));
+			assertEquals(Long.valueOf(1), metrics.changesByKey().get("sender"));
+			assertEquals(Long.valueOf(1), metrics.failuresByKey().get("smtp-port"));
+			assertEquals(Long.valueOf(1), metrics.failuresByKey().get("i"));
+			assertEquals(3, metrics.failuresByKey().size());
+			long byConverter = 0;
+			for (long n : metrics.failuresByConverter().values()) {
+				byConverter += n;
+			}
+			assertEquals(3, byConverter);
+			assertTrue(metrics.failuresByConverter().containsKey(
+					((ConfigParameterField) c.parameter("i")).converterType()));
+
+			ConfigManager.setFromArgs(c, new String[]{"-sender=me", "-unknown"});
+			assertEquals(1, metrics.count(args));
+			assertEquals(2, metrics.values(args));
+			assertEquals(1, metrics.failures(args));
+			ConfigManager.setFromEnv(c, "", Collections.singletonMap("SENDER", "env"));
+			assertEquals(1, metrics.values(env));
+			assertEquals("env", mail.sender);
+
+			c.walk(new ConfigVisitor() {
+				public void visitConfiguration(String name, String tags, String description, Configurator c) {}
+
+				public void visitParameter(ConfigParameter parameter, String currentValue) {}
+			});
+			// walks are measured per configuration
+			assertEquals(2, metrics.count(walk));
+			assertEquals(c.keys().length, metrics.values(walk));
+			assertTrue(metrics.nanos(walk) >= 0);
+
+			// other templates may have been scanned above, depending on the order of the tests
+			long scans = metrics.count(scan);
+			long scanned = metrics.values(scan);
+			long converters = metrics.count(converter);
+			ConfigManager.configure(new Scanned());
+			assertEquals(scans + 1, metrics.count(scan));
+			assertEquals(scanned + 2, metrics.values(scan));
+			assertEquals(converters + 2, metrics.count(converter));
+		} finally {
+			ConfigManager.setMetrics(null);
+		}
+		long sets = metrics.count(set);
+		ConfigManager.configure(new ConfigTemplateTest.Mail()).set("sender", "x");
+		assertEquals(sets, metrics.count(set));
+	}
+
+	@Test
+	public void flightRecorder() {
+		ConfigMetrics metrics = ConfigManager.flightRecorderMetrics();
+		if (metrics == null) {
+			// before Java 11
+			return;
+		}
+		ConfigManager.setMetrics(metrics);
+		try {
+			// no recording enables the events
+			assertEquals(0, Metrics.start());
+			assertFalse(Metrics.measuresChanges());
+			ConfigTemplateTest.Mail mail = new ConfigTemplateTest.Mail();
+			Configurator c = ConfigManager.configure(mail);
+			assertEquals(1, c.set("sender", "you"));
+			assertEquals(0, c.set("smtp-port", "many"));
+			assertEquals("you", mail.sender);
+		} finally {
+			ConfigManager.setMetrics(null);
+		}
+	}
+}
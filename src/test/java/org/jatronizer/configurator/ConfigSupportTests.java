@@ -5,6 +5,12 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 public class ConfigSupportTests {
 
 	private static class Negator implements Converter<Double> {
@@ -36,6 +42,15 @@ public class ConfigSupportTests {
 		private String value;
 	}
 
+	static class NamedParameters {
+		@Parameter
+		long lo;
+		@Parameter
+		boolean mo;
+		@Parameter
+		double yo;
+	}
+
 	private static class ExplicitKeyConflict {
 		@Parameter(key = "a")
 		private String a;
@@ -73,18 +88,85 @@ public class ConfigSupportTests {
 		*/
 	}
 
+	// the regular expression based implementation KeyFormat replaced
+	private static String regexFormat(KeyFormat format, String key) {
+		String separator = format == KeyFormat.arg ? "-" : "_";
+		String formatted = key
+				.replaceAll("([A-Z]+)", separator + "$1")
+				.replaceAll("[^A-Za-z0-9]+", separator);
+		return format == KeyFormat.arg
+				? formatted.replaceAll("--+", "-").toLowerCase()
+				: formatted.replaceAll("__+", "-").toUpperCase();
+	}
+
+	private static void assertFormat(String key) {
+		for (KeyFormat format : KeyFormat.values()) {
+			assertEquals(format + " of \"" + key + "\"", regexFormat(format, key), format.from(key));
+		}
+	}
+
+	@Test
+	public void keyFormatMatchesRegex() {
+		// all keys up to 4 chars from letters, digits, separators and other chars
+		final char[] alphabet = "aZ0-_. \u00fcBz9$\ud83d".toCharArray();
+		final int n = alphabet.length;
+		char[] key = new char[4];
+		for (int len = 0; len <= key.length; len++) {
+			int combinations = 1;
+			for (int i = 0; i < len; i++) {
+				combinations *= n;
+			}
+			for (int c = 0; c < combinations; c++) {
+				for (int i = 0, rest = c; i < len; i++, rest /= n) {
+					key[i] = alphabet[rest % n];
+				}
+				assertFormat(new String(key, 0, len));
+			}
+		}
+		// every char on its own and between letters
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+			assertFormat(String.valueOf((char) c));
+			assertFormat("aB" + (char) c + "Cd");
+		}
+		assertEquals("-my-app", KeyFormat.arg.from("-myApp"));
+		assertEquals("_HTML_VAL_ES", KeyFormat.env.from("HTML$Val\u00fces"));
+	}
+
+	@Test
+	public void keyNames() {
+		Configurator c = ConfigManager.configure(new NamedParameters());
+		assertSame("names are cached", KeyNames.of(c), KeyNames.of(c));
+		KeyNames names = KeyNames.of(c);
+		assertArrayEquals(new String[]{"LO", "MO", "YO"}, names.env(""));
+		assertArrayEquals(new String[]{"APP_LO", "APP_MO", "APP_YO"}, names.env("app."));
+		Map<String, String> dest = new HashMap<String, String>();
+		ArrayList<String> unused = new ArrayList<String>();
+		assertEquals(2, names.parseArgs(dest, unused, new String[]{"-lo=3", "-mo", "-no=1"}));
+		assertEquals("3", dest.get("lo"));
+		assertEquals("true", dest.get("mo"));
+		assertEquals(Arrays.asList("-no=1"), unused);
+		dest.clear();
+		Map<String, String> env = new HashMap<String, String>();
+		env.put("APP_YO", "1.5");
+		assertEquals(1, names.readEnv(dest, "app.", env));
+		assertEquals("1.5", dest.get("yo"));
+		// an environment larger than the keys is probed by key
+		env.put("APP_LO", "2");
+		env.put("LO", "3");
+		env.put("PATH", "/bin");
+		dest.clear();
+		assertEquals(2, names.readEnv(dest, "app.", env));
+		assertEquals("2", dest.get("lo"));
+		env.put("APP_MO", "x");
+		assertEquals(Collections.singletonMap("mo", "x"), ConfigManager.setFromEnv(c, "app.", env));
+		assertEquals("2", c.value("lo"));
+		assertEquals("1.5", c.value("yo"));
+	}
+
 	/*
 	ConfigParameter[] fetchParameters(Object config, String keyPrefix)
 	enum KeyFormat implements KeyFormatter
 	String description(AnnotatedElement elem)
 	String[] collisions(KeyFormatter format, String...keys)
-	int values(
-			Map<String, String> dst,
-			String[] keys, String keyPrefix, KeyFormatter format,
-			Map<String, String> src)
-	int parseValues(
-			Map<String, String> dst, Collection<String> dstUnused,
-			String[] keys, String keyPrefix, KeyFormatter format,
-			String...src)
 	*/
 }
@@ -0,0 +1,142 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class ConfigTemplateTest {
+
+	static class Server {
+		@Parameter
+		String host = "localhost";
+		@Parameter
+		int port = 25;
+	}
+
+	static class Mail {
+		@Parameter
+		String sender = "me";
+		@Parameter(key = "smtp-", container = true)
+		Server smtp = new Server();
+	}
+
+	@Test
+	public void cached() throws Exception {
+		assertSame(ConfigTemplate.of(Mail.class), ConfigTemplate.of(Mail.class));
+		ConfigParameter[] a = ConfigSupport.fetchParameters(new Mail(), "");
+		ConfigParameter[] b = ConfigSupport.fetchParameters(new Mail(), "");
+		assertEquals(a.length, b.length);
+		for (int i = 0; i < a.length; i++) {
+			assertEquals(a[i], b[i]);
+		}
+		assertSame("unprefixed keys are shared", a[0].key(), b[0].key());
+		ConfigParameter p = ConfigManager.parameter(new Server(), Server.class.getDeclaredField("port"), null, null, null);
+		assertEquals("port", p.key());
+		assertEquals("25", p.defaultValue());
+	}
+
+	public static class Broken implements Converter<String> {
+		public Broken() {
+			throw new UnsupportedOperationException();
+		}
+		public String fromString(String value) {return value;}
+		public String toString(String value) {return value;}
+	}
+
+	static class Partial {
+		@Parameter(converter = Broken.class)
+		String broken = "";
+		int plain = 1;
+	}
+
+	@Test
+	public void unannotatedParameter() throws Exception {
+		ConfigParameter p = ConfigManager.parameter(new Partial(), Partial.class.getDeclaredField("plain"), null, null, null);
+		assertEquals("plain", p.key());
+		assertEquals("1", p.defaultValue());
+	}
+
+	@Test
+	public void rebind() {
+		Mail first = new Mail();
+		Configurator c = ConfigManager.configure(first, "mail", "tenant.", "", "");
+		assertArrayEquals(
+				new String[]{"tenant.sender", "tenant.smtp-host", "tenant.smtp-port"},
+				c.keys()
+		);
+		Mail second = new Mail();
+		second.smtp.port = 587;
+		Configurator r = ConfigManager.rebind(c, second);
+		assertArrayEquals(c.keys(), r.keys());
+		assertEquals("587", r.parameter("tenant.smtp-port").defaultValue());
+		assertEquals(1, r.set("tenant.smtp-host", "mail.example.com"));
+		assertEquals(1, r.set("tenant.sender", "you"));
+		assertEquals("mail.example.com", second.smtp.host);
+		assertEquals("you", second.sender);
+		assertEquals("localhost", first.smtp.host);
+		assertEquals("me", first.sender);
+		assertSame(c, ConfigManager.rebind(c, first));
+	}
+
+	@Test
+	public void rebindListeners() {
+		Configurator c = ConfigManager.configure(new Mail());
+		final List<Configurator> notified = new ArrayList<Configurator>();
+		ConfigManager.addListener(c, "", new ConfigListener() {
+			public void changed(Configurator configurator, Set<String> keys) {
+				notified.add(configurator);
+			}
+		}, new Executor() {
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+		Configurator r = ConfigManager.rebind(c, new Mail());
+		assertEquals(1, r.set("sender", "you"));
+		assertEquals(Collections.singletonList(r), notified);
+	}
+
+	@Test(expected = ConfigException.class)
+	public void rebindExplicitParameters() throws Exception {
+		Server s = new Server();
+		Configurator c = ConfigManager.configure(s, "", "", "", "",
+				ConfigManager.parameter(s, Server.class.getDeclaredField("port"), null, null, null));
+		ConfigManager.rebind(c, new Server());
+	}
+
+	@Test
+	public void lazy() {
+		Mail mail = new Mail();
+		Configurator eager = ConfigManager.configure(new Mail(), "mail", "tenant.", "", "");
+		InstanceConfigurator c = (InstanceConfigurator) ConfigManager.configureLazily(mail, "mail", "tenant.", "", "");
+		assertArrayEquals(eager.keys(), c.keys());
+		assertTrue(c.hasKey("tenant.smtp-host"));
+		assertEquals("keys do not bind parameters", 0, c.bound());
+		assertEquals("me", c.value("tenant.sender"));
+		assertEquals("only the configuration of the key is bound", 1, c.bound());
+		mail.smtp.port = 587;
+		assertEquals(1, c.set("tenant.smtp-host", "example.com"));
+		assertEquals(3, c.bound());
+		assertEquals("587", c.parameter("tenant.smtp-port").defaultValue());
+		assertEquals("example.com", mail.smtp.host);
+		assertSame(c.parameter("tenant.smtp-host"), c.parameter("tenant.smtp-host"));
+		Mail second = new Mail();
+		InstanceConfigurator r = (InstanceConfigurator) ConfigManager.rebind(c, second);
+		assertEquals(0, r.bound());
+		assertEquals(1, r.set("tenant.sender", "you"));
+		assertEquals("you", second.sender);
+		assertEquals("me", mail.sender);
+		ByteArrayOutputStream lazyHelp = new ByteArrayOutputStream();
+		ByteArrayOutputStream eagerHelp = new ByteArrayOutputStream();
+		ConfigManager.printHelpFor(ConfigManager.configureLazily(new Mail(), "mail", "tenant.", "", ""), "", lazyHelp);
+		ConfigManager.printHelpFor(eager, "", eagerHelp);
+		assertArrayEquals(eagerHelp.toByteArray(), lazyHelp.toByteArray());
+	}
+}
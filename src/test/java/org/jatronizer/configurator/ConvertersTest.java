@@ -115,6 +115,52 @@ public class ConvertersTest {
 				ConfigManager.converter(TestValues.class).getClass() == Converters.EnumConverter.class);
 	}
 
+	static class Primitives {
+		@Parameter boolean z = true;
+		@Parameter char c = 'c';
+		@Parameter byte b = 1;
+		@Parameter short s = 2;
+		@Parameter int i = 3;
+		@Parameter long j = 4;
+		@Parameter float f = 5.5f;
+		@Parameter double d = 6.5;
+		@Parameter Integer boxed = 7;
+	}
+
+	@Test
+	public void primitiveFields() throws Exception {
+		assertSame("primitive fields are converted without boxing",
+				Converters.INT_CONVERTER, FieldTemplate.create(Primitives.class.getDeclaredField("i"), null, null, null).primitive);
+		assertNull("boxed fields use the regular conversion",
+				FieldTemplate.create(Primitives.class.getDeclaredField("boxed"), null, null, null).primitive);
+		Primitives p = new Primitives();
+		Configurator c = ConfigManager.configure(p);
+		String[][] values = {
+				{"z", "true", "false"},
+				{"c", "c", "x"},
+				{"b", "1", "-128"},
+				{"s", "2", "32767"},
+				{"i", "3", "-2147483648"},
+				{"j", "4", "9223372036854775807"},
+				{"f", "5.5", "-0.25"},
+				{"d", "6.5", "1.0E100"},
+				{"boxed", "7", "8"}
+		};
+		for (String[] v : values) {
+			assertEquals(v[1], c.parameter(v[0]).defaultValue());
+			assertEquals(1, c.set(v[0], v[2]));
+			assertEquals(v[2], c.value(v[0]));
+		}
+		assertEquals(0, c.set("b", "128"));
+		assertEquals(0, c.set("z", "yes"));
+		assertEquals(0, c.set("c", "xy"));
+		assertFalse(p.z);
+		assertEquals('x', p.c);
+		assertEquals(Byte.MIN_VALUE, p.b);
+		assertEquals(Long.MAX_VALUE, p.j);
+		assertEquals(1.0E100, p.d, 0);
+	}
+
 	@Test
 	public void testBoolean() {
 		Class type = Boolean.class;
@@ -345,10 +391,17 @@ public class ConvertersTest {
 				TestValues.B
 		), checkWith(conv));
 		failEach(call(conv, "fromString", String.class),
-				(String) null
+				(String) null,
+				"",
+				"c",
+				"A"
 		);
 		failEach(call(conv, "toString", Object.class),
 				(TestValues) null
 		);
+		assertSame("enum converters are cached", conv, ConfigManager.converter(type));
+		Converters.EnumConverter enumConv = (Converters.EnumConverter) conv;
+		assertArrayEquals(new String[]{"B", "a", "b"}, enumConv.options);
+		assertArrayEquals(new String[]{"", "", ""}, enumConv.optionDescriptions);
 	}
 }
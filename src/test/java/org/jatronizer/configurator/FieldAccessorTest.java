@@ -0,0 +1,120 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.*;
+
+public class FieldAccessorTest {
+
+	private static class Fields {
+		private boolean bo;
+		private char c;
+		private byte by;
+		private short s;
+		private int i;
+		private long l;
+		private float f;
+		private double d;
+		private String str = "a";
+		private final String fin = "b";
+	}
+
+	private static FieldAccessor[] accessors(String name) {
+		try {
+			Field field = Fields.class.getDeclaredField(name);
+			return new FieldAccessor[]{
+					new ReflectionAccessor(field),
+					FieldAccessor.of(field)
+			};
+		} catch (NoSuchFieldException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void primitives() {
+		Fields conf = new Fields();
+		for (FieldAccessor a : accessors("bo")) {
+			a.setBoolean(conf, true);
+			assertTrue(a.toString(), a.getBoolean(conf));
+			a.set(conf, false);
+			assertEquals(a.toString(), false, a.get(conf));
+		}
+		for (FieldAccessor a : accessors("c")) {
+			a.setChar(conf, 'x');
+			assertEquals(a.toString(), 'x', a.getChar(conf));
+			a.set(conf, 'y');
+			assertEquals(a.toString(), 'y', a.get(conf));
+		}
+		for (FieldAccessor a : accessors("by")) {
+			a.setByte(conf, Byte.MIN_VALUE);
+			assertEquals(a.toString(), Byte.MIN_VALUE, a.getByte(conf));
+			a.set(conf, (byte) 1);
+			assertEquals(a.toString(), (byte) 1, a.get(conf));
+		}
+		for (FieldAccessor a : accessors("s")) {
+			a.setShort(conf, Short.MIN_VALUE);
+			assertEquals(a.toString(), Short.MIN_VALUE, a.getShort(conf));
+			a.set(conf, (short) 1);
+			assertEquals(a.toString(), (short) 1, a.get(conf));
+		}
+		for (FieldAccessor a : accessors("i")) {
+			a.setInt(conf, Integer.MIN_VALUE);
+			assertEquals(a.toString(), Integer.MIN_VALUE, a.getInt(conf));
+			a.set(conf, 1);
+			assertEquals(a.toString(), 1, a.get(conf));
+		}
+		for (FieldAccessor a : accessors("l")) {
+			a.setLong(conf, Long.MIN_VALUE);
+			assertEquals(a.toString(), Long.MIN_VALUE, a.getLong(conf));
+			a.set(conf, 1L);
+			assertEquals(a.toString(), 1L, a.get(conf));
+		}
+		for (FieldAccessor a : accessors("f")) {
+			a.setFloat(conf, Float.MIN_VALUE);
+			assertEquals(a.toString(), Float.MIN_VALUE, a.getFloat(conf), 0.0f);
+			a.set(conf, 1.0f);
+			assertEquals(a.toString(), 1.0f, a.get(conf));
+		}
+		for (FieldAccessor a : accessors("d")) {
+			a.setDouble(conf, Double.MIN_VALUE);
+			assertEquals(a.toString(), Double.MIN_VALUE, a.getDouble(conf), 0.0);
+			a.set(conf, 1.0);
+			assertEquals(a.toString(), 1.0, a.get(conf));
+		}
+	}
+
+	@Test
+	public void objects() {
+		Fields conf = new Fields();
+		for (FieldAccessor a : accessors("str")) {
+			a.set(conf, "x");
+			assertEquals(a.toString(), "x", a.get(conf));
+			a.set(conf, null);
+			assertNull(a.toString(), a.get(conf));
+		}
+		for (FieldAccessor a : accessors("fin")) {
+			a.set(conf, "y");
+			assertEquals(a.toString(), "y", a.get(conf));
+		}
+	}
+
+	@Test
+	public void failures() {
+		Fields conf = new Fields();
+		for (FieldAccessor a : accessors("i")) {
+			try {
+				a.set(conf, null);
+				fail(a + " must not set null on a primitive field");
+			} catch (IllegalValueException e) {
+			}
+			try {
+				a.set(conf, "1");
+				fail(a + " must not set a String on an int field");
+			} catch (IllegalValueException e) {
+			}
+		}
+	}
+}
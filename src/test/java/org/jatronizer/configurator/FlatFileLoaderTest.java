@@ -0,0 +1,82 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FlatFileLoaderTest {
+
+	private static File file(String content) throws IOException {
+		File file = File.createTempFile("configurator", ".conf");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	@Test
+	public void read() throws IOException {
+		File file = file(""
+				+ "# comment\n"
+				+ "\n"
+				+ "  ! comment\r\n"
+				+ "unknown=value\n"
+				+ "sender = me@example.com \r\n"
+				+ "smtp-höst=x\n"
+				+ "smtp-host=éxample.com\n"
+				+ "smtp-port\n"
+				+ "smtp-port=587");
+		Map<String, String> expected = new HashMap<String, String>();
+		expected.put("sender", "me@example.com ");
+		expected.put("smtp-host", "éxample.com");
+		expected.put("smtp-port", "587");
+		KeyIndex index = new KeyIndex(new String[]{"sender", "smtp-host", "smtp-port", "smtp-höst"});
+		expected.put("smtp-höst", "x");
+		assertEquals(expected, FlatFileLoader.read(file, index, FlatFileLoader.WINDOW));
+		// lines crossing the windows are read again in the next one
+		for (int window = 26; window < 64; window++) {
+			assertEquals(expected, FlatFileLoader.read(file, index, window));
+		}
+	}
+
+	@Test
+	public void crlfAndBom() throws IOException {
+		File file = file("\uFEFFsender=me\r\nsmtp-host\r\nsmtp-port \t\r\n");
+		Map<String, String> expected = new HashMap<String, String>();
+		expected.put("sender", "me");
+		expected.put("smtp-host", "");
+		expected.put("smtp-port", "");
+		KeyIndex index = new KeyIndex(new String[]{"sender", "smtp-host", "smtp-port"});
+		assertEquals(expected, FlatFileLoader.read(file, index, FlatFileLoader.WINDOW));
+		for (int window = 16; window < 32; window++) {
+			assertEquals(expected, FlatFileLoader.read(file, index, window));
+		}
+		expected.clear();
+		assertEquals(expected, FlatFileLoader.read(file("\uFEFF"), index, FlatFileLoader.WINDOW));
+	}
+
+	@Test
+	public void setFromFile() throws IOException {
+		ConfigTemplateTest.Mail mail = new ConfigTemplateTest.Mail();
+		Configurator c = ConfigManager.configure(mail);
+		Map<String, String> invalid = ConfigManager.setFromFile(c, file("sender=you\nsmtp-port=x\nother=1\n"));
+		assertEquals("you", mail.sender);
+		assertEquals(1, invalid.size());
+		assertEquals("x", invalid.get("smtp-port"));
+	}
+
+	@Test(expected = ConfigException.class)
+	public void lineTooLong() throws IOException {
+		FlatFileLoader.read(file("sender=12345678901234567890\n"), new KeyIndex(new String[]{"sender"}), 8);
+	}
+}
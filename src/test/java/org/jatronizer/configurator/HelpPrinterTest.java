@@ -0,0 +1,147 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import static org.jatronizer.configurator.ConfigSupport.KeyFormat.arg;
+import static org.jatronizer.configurator.ConfigSupport.KeyFormat.env;
+import static org.junit.Assert.*;
+
+public class HelpPrinterTest {
+
+	// the implementation before HelpPrinter was buffered
+	static class LegacyHelpPrinter implements ConfigVisitor {
+		private final OutputStream out;
+		private final String envVarPrefix;
+
+		LegacyHelpPrinter(OutputStream out, String envVarPrefix) {
+			this.out = out;
+			this.envVarPrefix = envVarPrefix;
+		}
+
+		private void forceWrite(String text) {
+			try {
+				out.write(text.getBytes(Charset.forName("UTF-8")));
+			} catch (Exception e) {
+				throw new ConfigException(e);
+			}
+		}
+
+		public void visitConfiguration(String name, String tags, String description, Configurator configurator) {
+			if ("".equals(name)) {
+				return;
+			}
+			String text = "\nParameters for " + name + ":";
+			if (!"".equals(description)) {
+				text += " " + description;
+			}
+			text += "\n";
+			forceWrite(text);
+		}
+
+		public void visitParameter(ConfigParameter parameter, String value) {
+			final String EMPTY = "                                ";
+			String key = parameter.key();
+			String text = arg.from(ConfigManager.ARG_PREFIX + key) + ", $" + env.from(envVarPrefix + key) + "\n";
+			String description = parameter.description();
+			if (!"".equals(description)) {
+				text += "\t" + description + "\n";
+			}
+			String defaultValue = parameter.defaultValue();
+			if (value == null) {
+				if (defaultValue != null) {
+					text += "\tdefault: \"" + defaultValue + "\"\n";
+				}
+			} else {
+				if (defaultValue == null) {
+					text += "\tvalue: '" + value + "'\n";
+				} else if (value.equals(defaultValue)) {
+					text += "\tvalue: '" + value + "' (is default)\n";
+				} else {
+					text += "\tvalue: '" + value + "', default: '" + defaultValue + "'\n";
+				}
+			}
+			String[] options = parameter.options();
+			if (options.length > 0) {
+				text += "\tavailable values:\n";
+				int longest = 0;
+				for (String option : options) {
+					if (option.length() > longest) {
+						longest = option.length();
+					}
+				}
+				for (String option : options) {
+					text += "\t  " + option;
+					String pdesc = parameter.description(option);
+					if (pdesc == null || "".equals(pdesc)) {
+						text += "\n";
+						continue;
+					}
+					int paddingNeeded = 2 + longest - option.length();
+					while (paddingNeeded > EMPTY.length()) {
+						text += EMPTY;
+						paddingNeeded -= EMPTY.length();
+					}
+					text += EMPTY.substring(0, paddingNeeded) + pdesc + "\n";
+				}
+			}
+			forceWrite(text);
+		}
+	}
+
+	enum Spacing {
+		@Description("short")
+		a,
+		@Description("the option name is longer than the padding buffer")
+		an_option_with_a_name_longer_than_thirty_two_characters,
+		undescribed
+	}
+
+	@Description("ünïcödé 😀")
+	static class Texts {
+		@Parameter
+		@Description("text with a lone surrogate \ud800 and more")
+		String text = "€";
+		@Parameter
+		String none;
+		@Parameter
+		Spacing spacing = Spacing.a;
+	}
+
+	private static byte[] legacy(Configurator c, String prefix) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		c.walk(new LegacyHelpPrinter(out, prefix));
+		out.write('\n');
+		return out.toByteArray();
+	}
+
+	private static byte[] help(Configurator c, String prefix) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ConfigManager.printHelpFor(c, prefix, out);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void identical() {
+		Texts texts = new Texts();
+		Configurator c = ConfigManager.configure(
+				texts, new ConfigDescriptorTest.Described(), new ConvertersTest.Primitives());
+		for (String prefix : new String[]{"app/", "", "app/", "other_"}) {
+			assertArrayEquals(legacy(c, prefix), help(c, prefix));
+		}
+		c.set("spacing", "undescribed");
+		c.set("text", "\udc00");
+		c.set("none", "set");
+		assertArrayEquals("cached parts do not depend on values", legacy(c, "app/"), help(c, "app/"));
+		StringBuilder large = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			large.append("ä");
+		}
+		texts.text = large.toString();
+		c = ConfigManager.configure(texts);
+		assertArrayEquals("text larger than the buffer", legacy(c, ""), help(c, ""));
+	}
+}
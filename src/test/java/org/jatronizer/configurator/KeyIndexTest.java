@@ -0,0 +1,67 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class KeyIndexTest {
+
+	@Test
+	public void lookup() {
+		// "Aa" and "BB" have the same hash code
+		String[] keys = {"", "Aa", "BB", "a/b", "smtp/warn/account/login", "smtp/warn/account/logout"};
+		KeyIndex index = new KeyIndex(keys);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(i, index.indexOf(new String(keys[i])));
+		}
+		assertEquals(-1, index.indexOf("AaBB"));
+		assertEquals(-1, index.indexOf("smtp/warn/account/"));
+		assertEquals(-1, index.indexOf(null));
+		assertEquals(-1, new KeyIndex(new String[0]).indexOf(""));
+	}
+
+	@Test
+	public void many() {
+		String[] keys = new String[10000];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = "key/" + i;
+		}
+		KeyIndex index = new KeyIndex(keys);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(i, index.indexOf("key/" + i));
+			assertEquals(-1, index.indexOf("key/" + i + "/"));
+		}
+	}
+
+	@Test
+	public void hasFirstKey() {
+		Configurator c = ConfigManager.configure(new ConfigTemplateTest.Mail());
+		assertTrue(c.hasKey(c.keys()[0]));
+		assertFalse(c.hasKey("smtp-"));
+		c = ConfigManager.configure(new ConfigTemplateTest.Mail(), new ConvertersTest.Primitives());
+		for (String key : c.keys()) {
+			assertTrue(c.hasKey(key));
+		}
+	}
+
+	@Test
+	public void ranges() {
+		String[] keys = {"smtp/warn/login", "a", "smtp/", "smtp/host", "smtq", "smtp/warn/account"};
+		KeyIndex index = new KeyIndex(keys);
+		int first = index.first("smtp/");
+		assertEquals(1, first);
+		assertEquals(5, index.end("smtp/", first));
+		assertEquals("smtp/", keys[index.position(1)]);
+		assertEquals("smtp/warn/account", keys[index.position(3)]);
+		first = index.first("smtp/warn/");
+		assertEquals(3, first);
+		assertEquals(5, index.end("smtp/warn/", first));
+		first = index.first("b");
+		assertEquals(first, index.end("b", first));
+		assertEquals(keys.length, index.end("", index.first("")));
+		// sorted keys are not reordered
+		KeyIndex sorted = new KeyIndex(new String[]{"a", "b", "c"});
+		assertEquals(2, sorted.position(2));
+		assertEquals(1, sorted.first("b"));
+	}
+}
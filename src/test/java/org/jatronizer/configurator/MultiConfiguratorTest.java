@@ -0,0 +1,170 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MultiConfiguratorTest {
+
+	@Test
+	public void setRoutesEntries() {
+		ConfigTemplateTest.Mail mail = new ConfigTemplateTest.Mail();
+		ConvertersTest.Primitives primitives = new ConvertersTest.Primitives();
+		Configurator c = ConfigManager.configure(mail, primitives);
+		Map<String, String> batch = new HashMap<String, String>();
+		batch.put("sender", "you");
+		batch.put("smtp-port", "587");
+		batch.put("i", "42");
+		batch.put("b", "1000");
+		batch.put("unknown", "1");
+		Map<String, String> invalid = c.set(batch);
+		assertEquals(2, invalid.size());
+		assertEquals("1000", invalid.get("b"));
+		assertEquals("1", invalid.get("unknown"));
+		assertEquals("you", mail.sender);
+		assertEquals(587, mail.smtp.port);
+		assertEquals(42, primitives.i);
+		assertEquals(1, primitives.b);
+
+		Properties props = new Properties();
+		props.setProperty("j", "7");
+		props.setProperty("z", "maybe");
+		invalid = c.set(props);
+		assertEquals(1, invalid.size());
+		assertEquals("maybe", invalid.get("z"));
+		assertEquals(7L, primitives.j);
+		assertTrue(c.set(new HashMap<String, String>()).isEmpty());
+	}
+
+	@Test
+	public void parallel() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			// more configurators than fit in one task on any machine, in reverse key order
+			Configurator[] tenants = new Configurator[ParallelConfigure.CHUNK * 4 * Runtime.getRuntime().availableProcessors() + 7];
+			for (int i = 0; i < tenants.length; i++) {
+				int id = tenants.length - i;
+				tenants[i] = ConfigManager.configure(new ConfigTemplateTest.Mail(), "", "tenant" + id + ".", "", "");
+			}
+			Configurator sequential = ConfigManager.manage(tenants);
+			Configurator parallel = ConfigManager.manage(executor, tenants);
+			assertArrayEquals(sequential.keys(), parallel.keys());
+			for (String key : sequential.keys()) {
+				assertSame(sequential.parameter(key), parallel.parameter(key));
+			}
+			assertArrayEquals(
+					ConfigManager.configure(new ConfigTemplateTest.Mail(), new ConvertersTest.Primitives()).keys(),
+					ConfigManager.configure(executor, new ConfigTemplateTest.Mail(), new ConvertersTest.Primitives()).keys());
+			ConfigTemplateTest.Server server = new ConfigTemplateTest.Server();
+			assertTrue(ConfigManager.configure(executor, server) instanceof InstanceConfigurator);
+			tenants[tenants.length - 1] = tenants[0];
+			try {
+				ConfigManager.manage(executor, tenants);
+				fail("duplicate keys were not detected");
+			} catch (ConfigException e) {
+				assertEquals("duplicate key tenant" + tenants.length + ".sender in keys", e.getMessage());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	static class Broken {
+		@Parameter(container = true)
+		ConfigTemplateTest.Server server;
+	}
+
+	@Test
+	public void parallelFailureCancels() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		// one thread that waits after the first task, so the others stay queued
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>()) {
+			protected void afterExecute(Runnable r, Throwable t) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		try {
+			Object[] configurations = new Object[2 * ParallelConfigure.CHUNK + 1];
+			configurations[0] = new Broken();
+			for (int i = 1; i < configurations.length; i++) {
+				configurations[i] = new ConfigTemplateTest.Server();
+			}
+			try {
+				ConfigManager.configure(executor, configurations);
+				fail("a null container was accepted");
+			} catch (ConfigException e) {
+			}
+			assertFalse(executor.getQueue().isEmpty());
+			for (Runnable queued : executor.getQueue()) {
+				assertTrue(((Future<?>) queued).isCancelled());
+			}
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void subtree() {
+		ConfigTemplateTest.Mail mail = new ConfigTemplateTest.Mail();
+		ConfigTemplateTest.Mail other = new ConfigTemplateTest.Mail();
+		Configurator c = ConfigManager.manage(
+				ConfigManager.configure(mail, "", "mail/", "", ""),
+				ConfigManager.configure(other, "", "mailer/", "", ""),
+				ConfigManager.configure(new ConvertersTest.Primitives()));
+		Configurator smtp = ConfigManager.subtree(c, "mail/smtp-");
+		assertArrayEquals(new String[]{"mail/smtp-host", "mail/smtp-port"}, smtp.keys());
+		assertTrue(smtp.hasKey("mail/smtp-port"));
+		assertFalse(smtp.hasKey("mail/sender"));
+		assertNull(smtp.value("mail/sender"));
+		assertEquals(0, smtp.set("mail/sender", "you"));
+		assertEquals(1, smtp.set("mail/smtp-port", "587"));
+		assertEquals(587, mail.smtp.port);
+		Map<String, String> batch = new HashMap<String, String>();
+		batch.put("mail/smtp-host", "example.com");
+		batch.put("mailer/smtp-host", "example.org");
+		Map<String, String> invalid = smtp.set(batch);
+		assertEquals(1, invalid.size());
+		assertEquals("example.org", invalid.get("mailer/smtp-host"));
+		assertEquals("example.com", mail.smtp.host);
+		assertEquals("localhost", other.smtp.host);
+
+		final StringBuilder visited = new StringBuilder();
+		ConfigVisitor v = new ConfigVisitor() {
+			public void visitConfiguration(String name, String tags, String description, Configurator c) {
+				visited.append('[').append(name).append(']');
+			}
+
+			public void visitParameter(ConfigParameter parameter, String currentValue) {
+				visited.append(parameter.key()).append('=').append(currentValue).append(';');
+			}
+		};
+		ConfigManager.subtree(c, "mail").walk(v);
+		assertEquals("[Mail]mail/sender=me;mail/smtp-host=example.com;mail/smtp-port=587;"
+				+ "[Mail]mailer/sender=me;mailer/smtp-host=localhost;mailer/smtp-port=25;", visited.toString());
+		visited.setLength(0);
+		ConfigManager.subtree(ConfigManager.subtree(c, "mail"), "mail/smtp-p").walk(v);
+		assertEquals("[Mail]mail/smtp-port=587;", visited.toString());
+		visited.setLength(0);
+		ConfigManager.subtree(smtp, "x").walk(v);
+		assertEquals(0, visited.length());
+		assertEquals(0, ConfigManager.subtree(smtp, "mailer/").keys().length);
+		assertSame(smtp, ConfigManager.subtree(smtp, "mail/"));
+	}
+}
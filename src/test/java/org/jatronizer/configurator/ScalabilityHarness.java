@@ -0,0 +1,455 @@
+package org.jatronizer.configurator;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures how configurators scale with generated configuration classes.
+ * For each {@link Shape}, classes with {@link Parameter} annotated fields are generated and compiled with
+ * {@code javax.tools}, then the harness measures the time to create the first configurator (including the
+ * scan of the classes) and further ones, the retained heap per parameter and the throughput of reading and
+ * setting values.
+ * The report has one tab separated line per shape. Run it with {@code gradle scalability}, it is written to
+ * {@code build/reports/scalability.tsv}.
+ * The classes are compiled without annotation processing, so parameters are read with reflection.
+ * Heap usage is measured between garbage collections and only approximate.
+ */
+public final class ScalabilityHarness {
+
+	/**
+	 * The types of the generated parameters.
+	 */
+	public enum Mix {
+		primitive,
+		string,
+		enumerated,
+		converter,
+		mixed
+	}
+
+	/**
+	 * Describes a generated configuration.
+	 * Each class has {@code width} parameters; all but the innermost ones have {@code fanout} containers of the
+	 * class one level below, {@code depth} is the number of levels below the root.
+	 */
+	public static final class Shape {
+		final String name;
+		final int width;
+		final int fanout;
+		final int depth;
+		final Mix mix;
+
+		public Shape(String name, int width, int fanout, int depth, Mix mix) {
+			this.name = name;
+			this.width = width;
+			this.fanout = fanout;
+			this.depth = depth;
+			this.mix = mix;
+		}
+
+		/**
+		 * Retrieves the number of configuration instances in the configuration.
+		 */
+		public int instances() {
+			int instances = 0;
+			int level = 1;
+			for (int d = 0; d <= depth; d++) {
+				instances += level;
+				level *= fanout;
+			}
+			return instances;
+		}
+
+		/**
+		 * Retrieves the number of parameters in the configuration.
+		 */
+		public int parameters() {
+			return width * instances();
+		}
+
+		// name of the generated class at level; the root is at level depth
+		String className(int level) {
+			return "Generated" + Character.toUpperCase(name.charAt(0)) + name.substring(1).replace('-', '_') + level;
+		}
+	}
+
+	/**
+	 * The shapes measured by {@link #main}.
+	 */
+	public static final Shape[] SHAPES = {
+			new Shape("flat-10", 10, 0, 0, Mix.mixed),
+			new Shape("flat-1000", 1000, 0, 0, Mix.mixed),
+			new Shape("flat-10000", 10000, 0, 0, Mix.mixed),
+			new Shape("primitive-1000", 1000, 0, 0, Mix.primitive),
+			new Shape("string-1000", 1000, 0, 0, Mix.string),
+			new Shape("enum-1000", 1000, 0, 0, Mix.enumerated),
+			new Shape("converter-1000", 1000, 0, 0, Mix.converter),
+			new Shape("broad-1000", 1, 1000, 1, Mix.mixed),
+			new Shape("nested-10x3", 10, 10, 3, Mix.mixed),
+			new Shape("deep-100", 10, 1, 100, Mix.mixed),
+	};
+
+	/**
+	 * The measurements of a shape.
+	 */
+	public static final class Result {
+		public final Shape shape;
+		public final int parameters;
+		// creating the first configurator, including the scan of the classes
+		public final double firstMillis;
+		// creating another configurator, the median of several runs
+		public final double nextMillis;
+		public final double bytesPerParameter;
+		public final double getsPerSecond;
+		public final double setsPerSecond;
+
+		Result(
+				Shape shape,
+				int parameters,
+				double firstMillis,
+				double nextMillis,
+				double bytesPerParameter,
+				double getsPerSecond,
+				double setsPerSecond
+		) {
+			this.shape = shape;
+			this.parameters = parameters;
+			this.firstMillis = firstMillis;
+			this.nextMillis = nextMillis;
+			this.bytesPerParameter = bytesPerParameter;
+			this.getsPerSecond = getsPerSecond;
+			this.setsPerSecond = setsPerSecond;
+		}
+	}
+
+	private static final String PACKAGE = "generated";
+
+	// parameters created for each heap measurement, at least one configurator is created
+	private static final int HEAP_PARAMETERS = 200000;
+
+	// Static class without instances, constructor is hidden
+	private ScalabilityHarness() {}
+
+	/**
+	 * Measures {@link #SHAPES} and writes the report to standard out and to the file named by the first argument.
+	 * The second argument is the time in milliseconds spent measuring each throughput, 1000 by default.
+	 */
+	public static void main(String[] args) throws Exception {
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+		File dir = tempDir();
+		List<Result> results;
+		try {
+			results = measure(SHAPES, dir, millis);
+		} finally {
+			delete(dir);
+		}
+		report(results, System.out);
+		if (args.length > 0) {
+			File file = new File(args[0]);
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+			try {
+				report(results, out);
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Generates, compiles and measures configurations of all {@code shapes}.
+	 * @param dir The directory receiving the sources and classes.
+	 * @param millis The time spent measuring each throughput.
+	 * @throws IllegalStateException if no compiler is available, e.g. on a JRE.
+	 */
+	public static List<Result> measure(Shape[] shapes, File dir, long millis) throws IOException {
+		ClassLoader loader = compile(shapes, dir);
+		ArrayList<Result> results = new ArrayList<Result>(shapes.length);
+		for (Shape shape : shapes) {
+			try {
+				results.add(measure(shape, loader.loadClass(PACKAGE + "." + shape.className(shape.depth)), millis));
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Writes the results with a header line, values are separated by tabs.
+	 */
+	public static void report(List<Result> results, PrintStream out) {
+		out.println("# java " + System.getProperty("java.version") + ", " + System.getProperty("java.vm.name"));
+		out.println("shape\twidth\tfanout\tdepth\tmix\tparameters"
+				+ "\tfirst_ms\tnext_ms\tbytes_per_parameter\tgets_per_s\tsets_per_s");
+		for (Result r : results) {
+			out.println(String.format(Locale.ROOT, "%s\t%d\t%d\t%d\t%s\t%d\t%.3f\t%.3f\t%.1f\t%.0f\t%.0f",
+					r.shape.name, r.shape.width, r.shape.fanout, r.shape.depth, r.shape.mix, r.parameters,
+					r.firstMillis, r.nextMillis, r.bytesPerParameter, r.getsPerSecond, r.setsPerSecond));
+		}
+	}
+
+	// generates the sources of all shapes and compiles them into dir
+	private static ClassLoader compile(Shape[] shapes, File dir) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IllegalStateException("no Java compiler available");
+		}
+		File src = new File(dir, PACKAGE);
+		src.mkdirs();
+		ArrayList<File> files = new ArrayList<File>();
+		files.add(write(src, "Level", "package " + PACKAGE + ";\n\npublic enum Level { low, medium, high }\n"));
+		files.add(write(src, "HexConverter", ""
+				+ "package " + PACKAGE + ";\n\n"
+				+ "public class HexConverter implements org.jatronizer.configurator.Converter<Integer> {\n"
+				+ "\tpublic Integer fromString(String value) {\n"
+				+ "\t\treturn value == null ? null : Integer.valueOf(Integer.parseInt(value, 16));\n"
+				+ "\t}\n"
+				+ "\tpublic String toString(Integer value) {\n"
+				+ "\t\treturn value == null ? null : Integer.toHexString(value.intValue());\n"
+				+ "\t}\n"
+				+ "}\n"));
+		for (Shape shape : shapes) {
+			for (int level = 0; level <= shape.depth; level++) {
+				files.add(write(src, shape.className(level), source(shape, level)));
+			}
+		}
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, Locale.ROOT, null);
+		try {
+			String classpath = new File(location(Parameter.class)).getPath();
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(files);
+			List<String> options = Arrays.asList("-d", dir.getPath(), "-classpath", classpath, "-proc:none", "-nowarn");
+			if (!compiler.getTask(null, fileManager, null, options, null, units).call()) {
+				throw new IllegalStateException("generated configurations could not be compiled");
+			}
+		} finally {
+			fileManager.close();
+		}
+		return new URLClassLoader(new URL[]{dir.toURI().toURL()}, ScalabilityHarness.class.getClassLoader());
+	}
+
+	private static java.net.URI location(Class<?> type) {
+		try {
+			return type.getProtectionDomain().getCodeSource().getLocation().toURI();
+		} catch (Exception e) {
+			throw new IllegalStateException("location of " + type + " is unknown", e);
+		}
+	}
+
+	// creates the source of the class at level of shape
+	private static String source(Shape shape, int level) {
+		StringBuilder s = new StringBuilder();
+		s.append("package ").append(PACKAGE).append(";\n\n");
+		s.append("import org.jatronizer.configurator.Parameter;\n\n");
+		s.append("public class ").append(shape.className(level)).append(" {\n");
+		for (int i = 0; i < shape.width; i++) {
+			Mix mix = shape.mix;
+			if (mix == Mix.mixed) {
+				mix = Mix.values()[i % Mix.mixed.ordinal()];
+			}
+			switch (mix) {
+				case primitive:
+					String[] primitives = {"int", "long", "boolean", "double"};
+					s.append("\t@Parameter private ").append(primitives[(i / 4) % primitives.length]);
+					s.append(" p").append(i).append(";\n");
+					break;
+				case string:
+					s.append("\t@Parameter private String p").append(i).append(";\n");
+					break;
+				case enumerated:
+					// the enum converter does not accept null
+					s.append("\t@Parameter private Level p").append(i).append(" = Level.low;\n");
+					break;
+				case converter:
+					s.append("\t@Parameter(converter = HexConverter.class) private Integer p").append(i).append(";\n");
+					break;
+			}
+		}
+		if (level > 0) {
+			String child = shape.className(level - 1);
+			for (int i = 0; i < shape.fanout; i++) {
+				s.append("\t@Parameter(key = \"c").append(i).append("/\", container = true) private final ");
+				s.append(child).append(" c").append(i).append(" = new ").append(child).append("();\n");
+			}
+		}
+		return s.append("}\n").toString();
+	}
+
+	private static File write(File dir, String className, String source) throws IOException {
+		File file = new File(dir, className + ".java");
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			out.write(source);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static File tempDir() throws IOException {
+		File dir = File.createTempFile("configurator", ".scale");
+		if (!dir.delete() || !dir.mkdirs()) {
+			throw new IOException("could not create " + dir);
+		}
+		return dir;
+	}
+
+	// deletes file and, if it is a directory, everything in it
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private static Object instance(Class<?> type) {
+		try {
+			return type.newInstance();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Result measure(Shape shape, Class<?> type, long millis) {
+		long start = System.nanoTime();
+		Configurator configurator = ConfigManager.configure(instance(type));
+		double firstMillis = (System.nanoTime() - start) / 1e6;
+
+		double[] runs = new double[9];
+		for (int i = 0; i < runs.length; i++) {
+			Object configuration = instance(type);
+			start = System.nanoTime();
+			ConfigManager.configure(configuration);
+			runs[i] = (System.nanoTime() - start) / 1e6;
+		}
+		Arrays.sort(runs);
+
+		String[] keys = configurator.keys();
+		return new Result(
+				shape,
+				keys.length,
+				firstMillis,
+				runs[runs.length / 2],
+				bytesPerParameter(type, keys.length),
+				getsPerSecond(configurator, keys, millis),
+				setsPerSecond(configurator, keys, millis)
+		);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	// measures the heap retained by configurators, the configurations are created before
+	private static double bytesPerParameter(Class<?> type, int parameters) {
+		Object[] configurations = new Object[Math.max(1, HEAP_PARAMETERS / parameters)];
+		for (int i = 0; i < configurations.length; i++) {
+			configurations[i] = instance(type);
+		}
+		Configurator[] configurators = new Configurator[configurations.length];
+		long before = usedHeap();
+		for (int i = 0; i < configurators.length; i++) {
+			configurators[i] = ConfigManager.configure(configurations[i]);
+		}
+		long after = usedHeap();
+		if (configurators[configurators.length - 1] == null) {
+			// keeps the configurators reachable
+			throw new IllegalStateException();
+		}
+		return (after - before) / ((double) configurators.length * parameters);
+	}
+
+	private static double getsPerSecond(Configurator configurator, String[] keys, long millis) {
+		long operations = 0;
+		long found = 0;
+		long start = System.nanoTime();
+		long end = start + millis * 1000000L;
+		long now;
+		do {
+			for (String key : keys) {
+				if (configurator.value(key) != null) {
+					found++;
+				}
+			}
+			operations += keys.length;
+			now = System.nanoTime();
+		} while (now < end);
+		if (found < 0) {
+			// keeps the reads from being optimized away
+			throw new IllegalStateException();
+		}
+		return operations * 1e9 / (now - start);
+	}
+
+	private static double setsPerSecond(Configurator configurator, String[] keys, long millis) {
+		String[][] values = {new String[keys.length], new String[keys.length]};
+		for (int i = 0; i < keys.length; i++) {
+			Class<?> type = configurator.parameter(keys[i]).type();
+			String[] alternatives = alternatives(type);
+			values[0][i] = alternatives[0];
+			values[1][i] = alternatives[1];
+		}
+		long operations = 0;
+		long set = 0;
+		long start = System.nanoTime();
+		long end = start + millis * 1000000L;
+		long now;
+		do {
+			String[] next = values[(int) (operations / keys.length) & 1];
+			for (int i = 0; i < keys.length; i++) {
+				set += configurator.set(keys[i], next[i]);
+			}
+			operations += keys.length;
+			now = System.nanoTime();
+		} while (now < end);
+		if (set != operations) {
+			throw new IllegalStateException("only " + set + " of " + operations + " values were set");
+		}
+		return operations * 1e9 / (now - start);
+	}
+
+	// two different valid values for parameters of type
+	private static String[] alternatives(Class<?> type) {
+		if (type.isEnum()) {
+			Object[] constants = type.getEnumConstants();
+			return new String[]{constants[0].toString(), constants[1].toString()};
+		}
+		if (type == boolean.class) {
+			return new String[]{"true", "false"};
+		}
+		if (type == double.class) {
+			return new String[]{"0.5", "1.5"};
+		}
+		if (type == Integer.class) {
+			// hexadecimal, see HexConverter
+			return new String[]{"ff", "1a"};
+		}
+		if (type == String.class) {
+			return new String[]{"a", "b"};
+		}
+		return new String[]{"1", "2"};
+	}
+}
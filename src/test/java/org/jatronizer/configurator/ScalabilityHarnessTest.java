@@ -0,0 +1,46 @@
+package org.jatronizer.configurator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+public class ScalabilityHarnessTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void smallShapes() throws IOException {
+		assumeNotNull(ToolProvider.getSystemJavaCompiler());
+		File dir = folder.newFolder("scale");
+		ScalabilityHarness.Shape[] shapes = {
+				new ScalabilityHarness.Shape("flat", 20, 0, 0, ScalabilityHarness.Mix.mixed),
+				new ScalabilityHarness.Shape("nested", 4, 3, 2, ScalabilityHarness.Mix.mixed),
+				new ScalabilityHarness.Shape("converter", 3, 0, 0, ScalabilityHarness.Mix.converter),
+		};
+		List<ScalabilityHarness.Result> results = ScalabilityHarness.measure(shapes, dir, 10);
+		assertEquals(3, results.size());
+		assertEquals(20, results.get(0).parameters);
+		assertEquals(13, shapes[1].instances());
+		assertEquals(52, results.get(1).parameters);
+		for (ScalabilityHarness.Result r : results) {
+			assertTrue(r.getsPerSecond > 0);
+			assertTrue(r.setsPerSecond > 0);
+		}
+		ByteArrayOutputStream report = new ByteArrayOutputStream();
+		ScalabilityHarness.report(results, new PrintStream(report, true, "UTF-8"));
+		String[] lines = report.toString("UTF-8").split("\n");
+		assertEquals(5, lines.length);
+		assertTrue(lines[3].startsWith("nested\t4\t3\t2\tmixed\t52\t"));
+	}
+}
@@ -0,0 +1,64 @@
+package org.jatronizer.configurator;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StagedBatchTest {
+
+	// converts to a String, setting an int field with it fails
+	public static class WrongType implements Converter<Object> {
+		public Object fromString(String value) {return value;}
+		public String toString(Object value) {return String.valueOf(value);}
+	}
+
+	static class Broken {
+		@Parameter
+		String text = "a";
+		@Parameter(converter = WrongType.class)
+		int wrong = 1;
+	}
+
+	private static Map<String, String> batch(String... keyValues) {
+		LinkedHashMap<String, String> batch = new LinkedHashMap<String, String>();
+		for (int i = 0; i < keyValues.length; i += 2) {
+			batch.put(keyValues[i], keyValues[i + 1]);
+		}
+		return batch;
+	}
+
+	@Test
+	public void allOrNothing() {
+		ConfigTemplateTest.Mail mail = new ConfigTemplateTest.Mail();
+		ConvertersTest.Primitives primitives = new ConvertersTest.Primitives();
+		Configurator c = ConfigManager.configure(mail, primitives);
+		Map<String, String> invalid = ConfigManager.apply(c, batch("sender", "you", "i", "4", "b", "1000"));
+		assertEquals(batch("b", "1000"), invalid);
+		assertEquals("me", mail.sender);
+		assertEquals(3, primitives.i);
+		invalid = ConfigManager.apply(c, batch("sender", "you", "i", "4", "unknown", "1"));
+		assertEquals(batch("unknown", "1"), invalid);
+		assertEquals("me", mail.sender);
+		invalid = ConfigManager.apply(c, batch("sender", "you", "i", "4", "smtp-port", "587"));
+		assertTrue(invalid.isEmpty());
+		assertEquals("you", mail.sender);
+		assertEquals(4, primitives.i);
+		assertEquals(587, mail.smtp.port);
+	}
+
+	@Test
+	public void rollback() {
+		Broken broken = new Broken();
+		ConvertersTest.Primitives primitives = new ConvertersTest.Primitives();
+		Configurator c = ConfigManager.configure(primitives, broken);
+		// the failing value is set last
+		Map<String, String> invalid = ConfigManager.apply(c, batch("i", "5", "text", "b", "wrong", "2"));
+		assertEquals(batch("wrong", "2"), invalid);
+		assertEquals(3, primitives.i);
+		assertEquals("a", broken.text);
+		assertEquals(1, broken.wrong);
+	}
+}